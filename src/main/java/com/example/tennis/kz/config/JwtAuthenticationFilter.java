@@ -1,11 +1,19 @@
 package com.example.tennis.kz.config;
 
+import com.example.tennis.kz.model.JwtPrincipal;
 import com.example.tennis.kz.model.response.ApiError;
+import com.example.tennis.kz.model.response.UserStateRow;
 import com.example.tennis.kz.service.JwtService;
 import com.example.tennis.kz.service.UserService;
+import com.example.tennis.kz.service.UserStateCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import jakarta.annotation.PostConstruct;
 import org.apache.commons.lang3.StringUtils;
-import org.codehaus.jackson.map.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContext;
@@ -28,6 +36,19 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
     private final UserService userService;
+    private final UserStateCache userStateCache;
+    private final ObjectMapper objectMapper; // Общий маппер из JacksonConfig
+
+    private ObjectWriter apiErrorWriter;
+
+    // true - principal собирается из claims токена, БД не читается на каждый запрос (только кэш состояния)
+    @Value("${security.jwt.stateless-principal:true}")
+    private boolean statelessPrincipal;
+
+    @PostConstruct
+    void initWriters() {
+        apiErrorWriter = objectMapper.writerFor(ApiError.class); // Сериализатор ApiError строится один раз
+    }
 
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
@@ -41,12 +62,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
             jwt = authHeader.substring(7);
-            userEmail = jwtService.extractUserName(jwt);
+            final Claims claims = jwtService.parseClaims(jwt); // Единственный разбор токена за запрос
+            userEmail = claims.getSubject();
             if (StringUtils.isNotEmpty(userEmail)
                     && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userService.userDetailsService()
-                        .loadUserByUsername(userEmail);
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                UserDetails userDetails;
+                if (statelessPrincipal && claims.get(JwtService.CLAIM_USER_ID) != null) {
+                    userDetails = principalFromClaims(claims); // null - пользователь удален или отключен
+                } else {
+                    // Режим с загрузкой из БД и токены, выпущенные до появления claims
+                    userDetails = userService.userDetailsService().loadUserByUsername(userEmail);
+                }
+                if (userDetails != null && jwtService.isTokenValid(claims, userDetails)) {
                     SecurityContext context = SecurityContextHolder.createEmptyContext();
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
@@ -57,10 +84,34 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
             filterChain.doFilter(request, response);
         } catch (ExpiredJwtException | IOException ex) {
-            response.setStatus(401);
-            response.setContentType("application/json");
-            response.getWriter().print(new ObjectMapper().writeValueAsString(new ApiError("JWT is expired", ex.getMessage())));
+            writeUnauthorized(response, new ApiError("JWT is expired", ex.getMessage()));
         }
 
     }
-}
\ No newline at end of file
+
+    // Тело пишется байтами прямо в поток ответа, с известной длиной, без Writer и промежуточной строки
+    private void writeUnauthorized(HttpServletResponse response, ApiError error) throws IOException {
+        byte[] body = apiErrorWriter.writeValueAsBytes(error);
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Principal из подписанных claims. Роль и enabled сверяются с кэшем состояния пользователя, чтобы
+     * отключение учетной записи или смена роли действовали в пределах TTL кэша, а не до истечения токена.
+     * Возвращает null, если пользователь удален или отключен.
+     */
+    private UserDetails principalFromClaims(Claims claims) {
+        if (Boolean.FALSE.equals(claims.get(JwtService.CLAIM_ENABLED, Boolean.class))) {
+            return null;
+        }
+        Number userId = claims.get(JwtService.CLAIM_USER_ID, Number.class);
+        UserStateRow state = userStateCache.get(userId.longValue());
+        if (state == null || !state.enabled() || state.role() == null) {
+            return null;
+        }
+        return new JwtPrincipal(state.id(), claims.getSubject(), state.role());
+    }
+}
@@ -5,8 +5,10 @@ import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 import java.net.URI;
 
@@ -25,6 +27,16 @@ public class R2Config {
     @Value("${aws.s3.region}")
     private String region;
 
+    // R2 понимает оба стиля адресации; path-style нужен S3-совместимым стендам вроде MinIO
+    @Value("${aws.s3.path-style-access:false}")
+    private boolean pathStyleAccess;
+
+    @Value("${storage.upload.multipart-threshold-bytes:16777216}")
+    private long multipartThresholdBytes;
+
+    @Value("${storage.upload.part-size-bytes:8388608}")
+    private long partSizeBytes;
+
     @Bean
     public S3Client s3Client() {
         AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
@@ -37,6 +49,37 @@ public class R2Config {
                 .credentialsProvider(credentialsProvider)
                 .region(Region.of(region)) // Используем регион из конфига ('auto')
                 .endpointOverride(endpointUri) // Устанавливаем endpoint для R2
+                .forcePathStyle(pathStyleAccess)
+                .build();
+    }
+
+    // Асинхронный клиент для загрузок: файлы больше порога уходят multipart, части грузятся параллельно
+    @Bean(destroyMethod = "close")
+    public S3AsyncClient s3AsyncClient() {
+        AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
+
+        return S3AsyncClient.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .region(Region.of(region))
+                .endpointOverride(URI.create(endpointUrl))
+                .forcePathStyle(pathStyleAccess)
+                .multipartEnabled(true)
+                .multipartConfiguration(multipart -> multipart
+                        .thresholdInBytes(multipartThresholdBytes)
+                        .minimumPartSizeInBytes(partSizeBytes))
+                .build();
+    }
+
+    // Подпись ссылок выполняется локально, без обращения к R2
+    @Bean(destroyMethod = "close")
+    public S3Presigner s3Presigner() {
+        AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
+
+        return S3Presigner.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .region(Region.of(region))
+                .endpointOverride(URI.create(endpointUrl))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyleAccess).build())
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.example.tennis.kz.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Фоновые периодические задачи (@Scheduled): очистка истекших токенов и т.п.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
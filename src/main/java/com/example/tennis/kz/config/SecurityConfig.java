@@ -1,6 +1,7 @@
 package com.example.tennis.kz.config;
 
 import com.example.tennis.kz.service.UserService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -29,13 +30,20 @@ public class SecurityConfig {
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable).cors(withDefaults())
-                .authorizeHttpRequests(request -> request.requestMatchers(
+                // ASYNC-диспетчеризация завершает уже авторизованные SSE-ответы, JWT-фильтр на ней не выполняется
+                .authorizeHttpRequests(request -> request.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .requestMatchers(
                                 "/api/v1/auth/**",
                                 "/error",
                                 "/api/v1/user/confirmemail",
                                 "/swagger-ui/**",
                                 "/v3/api-docs/**")
-                        .anonymous().anyRequest().authenticated())
+                        .anonymous()
+                        // Health без деталей (show-details=never) нужен балансировщику и оркестратору без токена
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        // Метрики раскрывают внутреннее устройство и нагрузку — только для администраторов
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+                        .anyRequest().authenticated())
                 .sessionManagement(manager -> manager.sessionCreationPolicy(STATELESS))
                 .authenticationProvider(authenticationProvider()).addFilterBefore(
                         jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
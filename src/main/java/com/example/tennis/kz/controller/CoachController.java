@@ -45,6 +45,15 @@ public class CoachController {
         return ResponseEntity.ok(new CustomPageResponse<Coach>(coaches.getNumber() + 1, coaches.getSize(), coaches.getTotalElements(), coaches.getContent()));
     }
 
+    // Keyset-пагинация: без OFFSET, COUNT только при withTotal=true
+    @GetMapping("/scroll")
+    public ResponseEntity<?> scrollCoaches(@RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "10") int size,
+                                           @RequestParam(defaultValue = "false") boolean withTotal,
+                                           @RequestParam Boolean enabled) {
+        return ResponseEntity.ok(coachService.scrollCoaches(cursor, size, withTotal, enabled));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> findCoachById(@PathVariable Long id) {
         return ResponseEntity.ok(coachService.getCoachById(id));
@@ -0,0 +1,32 @@
+package com.example.tennis.kz.controller;
+
+import com.example.tennis.kz.exception.BadRequestException;
+import com.example.tennis.kz.service.EmailOutboxDispatcher;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/mail-outbox")
+@RequiredArgsConstructor
+@Tag(name = "Admin Mail Outbox", description = "Maintenance of the outgoing mail outbox")
+@PreAuthorize("hasRole('ADMIN')")
+public class EmailOutboxAdminController {
+
+    private final EmailOutboxDispatcher emailOutboxDispatcher;
+
+    @PostMapping("/revive")
+    @Operation(summary = "Requeue mails that failed all attempts within the last N days")
+    public ResponseEntity<Integer> reviveFailed(@RequestParam(defaultValue = "7") int days) {
+        if (days < 1) {
+            throw new BadRequestException("Количество дней должно быть положительным.");
+        }
+        return ResponseEntity.ok(emailOutboxDispatcher.reviveFailed(days));
+    }
+}
@@ -1,22 +1,71 @@
 package com.example.tennis.kz.controller;
 
 import com.example.tennis.kz.model.*;
+import com.example.tennis.kz.service.EnumDictionaryService;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api/v1/enum")
 public class EnumController {
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
     private final ResourceLoader resourceLoader;
+    private final EnumDictionaryService enumDictionaryService;
 
-    public EnumController(ResourceLoader resourceLoader) {
+    public EnumController(ResourceLoader resourceLoader, EnumDictionaryService enumDictionaryService) {
         this.resourceLoader = resourceLoader;
+        this.enumDictionaryService = enumDictionaryService;
+    }
+
+    // Все перечисления одним ответом. Клиент проверяет актуальность по ETag (304 без тела),
+    // а Content-Location указывает на неизменяемый адрес этой версии
+    @GetMapping("/dictionary")
+    public ResponseEntity<byte[]> getDictionary(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return dictionaryResponse(ifNoneMatch, acceptEncoding, "no-cache");
+    }
+
+    // Версионированный адрес: содержимое по нему никогда не меняется, кэшируется навсегда
+    @GetMapping("/dictionary/{version}")
+    public ResponseEntity<byte[]> getDictionaryVersion(@PathVariable String version,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (!enumDictionaryService.getVersion().equals(version)) {
+            throw new NoSuchElementException("Версия справочника '" + version + "' не найдена, актуальная: "
+                    + enumDictionaryService.getVersion());
+        }
+        return dictionaryResponse(ifNoneMatch, acceptEncoding, IMMUTABLE);
+    }
+
+    private ResponseEntity<byte[]> dictionaryResponse(String ifNoneMatch, String acceptEncoding, String cacheControl) {
+        String version = enumDictionaryService.getVersion();
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        // У сжатого и несжатого представлений разные сильные ETag; проверка If-None-Match принимает оба
+        String etag = "\"" + version + (gzip ? "-gz" : "") + "\"";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setCacheControl(cacheControl);
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        headers.set(HttpHeaders.CONTENT_LOCATION, "/api/v1/enum/dictionary/" + version);
+        if (ifNoneMatch != null && (ifNoneMatch.contains("\"" + version + "\"") || ifNoneMatch.contains("\"" + version + "-gz\"")
+                || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return ResponseEntity.ok().headers(headers).body(enumDictionaryService.getGzipped());
+        }
+        return ResponseEntity.ok().headers(headers).body(enumDictionaryService.getJson());
     }
 
     @GetMapping("/city")
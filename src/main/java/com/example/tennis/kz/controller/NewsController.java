@@ -1,17 +1,18 @@
 package com.example.tennis.kz.controller;
 
 import com.example.tennis.kz.model.News;
+import com.example.tennis.kz.model.response.CursorPageResponse;
 import com.example.tennis.kz.model.response.CustomPageResponse;
+import com.example.tennis.kz.model.response.PresignedUrlResponse;
 import com.example.tennis.kz.service.NewServices;
 import com.example.tennis.kz.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.InputStreamResource; // Используем InputStreamResource
-import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.http.HttpHeaders; // Не используется для отображения, но может пригодиться
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -19,10 +20,6 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
-// Импорты для работы с R2/S3 ответом
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-
 import java.io.IOException;
 // import java.nio.file.Files; // Больше не нужен здесь
 import java.util.NoSuchElementException;
@@ -74,6 +71,26 @@ public class NewsController {
         }
     }
 
+    // Прямая загрузка в R2: клиент получает подписанный PUT, загружает файл сам и создает новость по ключу
+    @PostMapping("/image-uploads")
+    public ResponseEntity<PresignedUrlResponse> createImageUpload(@RequestParam String filename,
+                                                                  @RequestParam String contentType,
+                                                                  @RequestParam long size) {
+        return ResponseEntity.ok(newServices.createImageUpload(userService.getAuthenticatedUser(), filename, contentType, size));
+    }
+
+    @PostMapping("/from-upload")
+    public ResponseEntity<News> createNewsFromUpload(@RequestParam String key,
+                                                     @RequestParam String title,
+                                                     @RequestParam String description) {
+        News news = News.builder()
+                .title(title)
+                .description(description)
+                .author(userService.getAuthenticatedUser())
+                .build();
+        return ResponseEntity.status(HttpStatus.CREATED).body(newServices.createNewsFromUpload(news, key));
+    }
+
     @GetMapping("/{newsId}")
     public ResponseEntity<News> getNewsDetails(@PathVariable long newsId) { // Уточнил тип возвращаемого значения
         try {
@@ -129,50 +146,27 @@ public class NewsController {
         return ResponseEntity.ok(response);
     }
 
-    // --- Измененный эндпоинт для *отображения* изображения ---
-    @GetMapping("/{newsId}/image")
-    public ResponseEntity<Resource> getNewsImage(@PathVariable Long newsId) {
-        ResponseInputStream<GetObjectResponse> responseInputStream = null;
-        try {
-            // 1. Вызываем метод сервиса, который возвращает ResponseInputStream
-            responseInputStream = newServices.downloadNewsImage(newsId);
-
-            // 2. Получаем метаданные (Content-Type, Content-Length) из ответа R2/S3
-            GetObjectResponse s3ObjectResponse = responseInputStream.response();
-            String contentType = s3ObjectResponse.contentType(); // Берем Content-Type из R2
-            long contentLength = s3ObjectResponse.contentLength();
-
-            // 3. Создаем ресурс Spring из InputStream'а
-            InputStreamResource resource = new InputStreamResource(responseInputStream);
+    // Keyset-пагинация: без OFFSET, COUNT только при withTotal=true
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPageResponse<News>> scrollNews(@RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "10") int size,
+                                                               @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(newServices.scrollNews(cursor, size, withTotal));
+    }
 
-            // 4. Формируем ответ для ОТОБРАЖЕНИЯ изображения
-            // Устанавливаем Content-Type и Content-Length, НЕ устанавливаем Content-Disposition=attachment
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .contentLength(contentLength)
-                    .body(resource);
+    // Изображение отдается из локального кэша с ETag и поддержкой Range; 404 — через GlobalExceptionHandler.
+    // size (ширина в пикселях) выбирает уменьшенную копию для лент и превью
+    @GetMapping("/{newsId}/image")
+    public void getNewsImage(@PathVariable Long newsId,
+                             @RequestParam(required = false) Integer size,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        newServices.serveNewsImage(newsId, size, request, response);
+    }
 
-        } catch (NoSuchElementException e) {
-            // Если новость или изображение не найдены (сервис выбрасывает это исключение)
-            System.err.println("Image not found for newsId " + newsId + ": " + e.getMessage());
-            // Возвращаем 404 Not Found
-            return ResponseEntity.notFound().build();
-            // Альтернативно: throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Изображение не найдено", e);
-
-        } catch (Exception e) { // Ловим другие возможные ошибки (например, от R2 при скачивании)
-            System.err.println("Error serving image for news " + newsId + ": " + e.getMessage());
-            // Важно: пытаемся закрыть стрим, если он был открыт, но произошла ошибка
-            if (responseInputStream != null) {
-                try {
-                    responseInputStream.close();
-                } catch (IOException ioException) {
-                    System.err.println("Error closing R2 input stream after error: " + ioException.getMessage());
-                }
-            }
-            // Возвращаем 500 Internal Server Error
-            return ResponseEntity.internalServerError().build();
-            // Альтернативно: throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Ошибка при загрузке изображения", e);
-        }
-        // Примечание: В случае успешного ответа (return ResponseEntity.ok()...), Spring позаботится о закрытии InputStream'а из InputStreamResource.
+    // Короткоживущая ссылка на изображение прямо в R2 (тот же выбор копии по size)
+    @GetMapping("/{newsId}/image-url")
+    public ResponseEntity<PresignedUrlResponse> getNewsImageUrl(@PathVariable Long newsId,
+                                                                @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(newServices.getNewsImageUrl(newsId, size));
     }
-}
\ No newline at end of file
+}
@@ -40,6 +40,15 @@ public class PartnerController {
         return ResponseEntity.ok(new CustomPageResponse<>(partners.getNumber() + 1, partners.getSize(), partners.getTotalElements(), partners.getContent()));
     }
 
+    // Keyset-пагинация: без OFFSET, COUNT только при withTotal=true
+    @GetMapping("/scroll")
+    public ResponseEntity<?> scrollPartners(@RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "10") int size,
+                                            @RequestParam(defaultValue = "false") boolean withTotal,
+                                            @RequestParam Boolean enabled) {
+        return ResponseEntity.ok(partnerService.scrollPartners(cursor, size, withTotal, enabled));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> findPartner(@PathVariable Long id) {
         return ResponseEntity.ok(partnerService.getPartnerById(id));
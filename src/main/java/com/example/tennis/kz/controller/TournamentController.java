@@ -6,7 +6,8 @@ import com.example.tennis.kz.model.Tournament;
 import com.example.tennis.kz.model.User;
 import com.example.tennis.kz.model.request.TournamentCreationRequestDTO;
 import com.example.tennis.kz.model.response.CustomPageResponse;
-import com.example.tennis.kz.model.response.MatchDto;
+import com.example.tennis.kz.service.BracketCache;
+import com.example.tennis.kz.service.BracketEventPublisher;
 import com.example.tennis.kz.service.TournamentQueryService;
 import com.example.tennis.kz.service.TournamentService;
 import com.example.tennis.kz.service.UserService;
@@ -18,13 +19,16 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/tournament") // Оставим прежний путь для совместимости
@@ -34,6 +38,8 @@ public class TournamentController {
     private final TournamentService tournamentService;
     private final UserService userService; // Для получения аутентифицированного пользователя
     private final TournamentQueryService tournamentQueryService;
+    private final BracketCache bracketCache;
+    private final BracketEventPublisher bracketEventPublisher;
 
     @GetMapping
     public ResponseEntity<?> getAllTournaments() {
@@ -97,6 +103,14 @@ public class TournamentController {
         return ResponseEntity.ok(new CustomPageResponse<>(tournaments.getNumber() + 1, tournaments.getSize(), tournaments.getTotalElements(), tournaments.getContent()));
     }
 
+    // Keyset-пагинация: без OFFSET, COUNT только при withTotal=true
+    @GetMapping("/scroll")
+    public ResponseEntity<?> scrollTournaments(@RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "10") int size,
+                                               @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(tournamentService.scrollTournaments(cursor, size, withTotal));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteTournament(@PathVariable Long id) {
         tournamentService.deleteTournament(id);
@@ -105,9 +119,23 @@ public class TournamentController {
 
     @GetMapping("/{tournamentId}/bracket")
     @Operation(summary = "Get tournament bracket data")
-    public ResponseEntity<?> getTournamentBracket(@PathVariable Long tournamentId) {
-        // Здесь тоже лучше возвращать List<MatchDTO>
-        List<MatchDto> bracketData = tournamentQueryService.getTournamentBracket(tournamentId);
-        return ResponseEntity.ok(bracketData);
+    public ResponseEntity<?> getTournamentBracket(@PathVariable Long tournamentId, WebRequest webRequest) {
+        // При попадании в кэш читается только версия сетки по первичному ключу, а клиент с актуальным ETag получает пустой 304
+        BracketCache.CachedBracket bracket = bracketCache.get(tournamentId,
+                () -> tournamentQueryService.getTournamentBracket(tournamentId));
+        if (webRequest.checkNotModified(bracket.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(bracket.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(bracket.json());
+    }
+
+    @GetMapping(value = "/{tournamentId}/bracket/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to live bracket updates (SSE)")
+    public SseEmitter streamTournamentBracket(@PathVariable Long tournamentId) {
+        return bracketEventPublisher.subscribe(tournamentId);
     }
 }
\ No newline at end of file
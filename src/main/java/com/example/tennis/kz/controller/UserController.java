@@ -1,11 +1,12 @@
 package com.example.tennis.kz.controller;
 
+import com.example.tennis.kz.model.City;
 import com.example.tennis.kz.model.Gender;
 import com.example.tennis.kz.model.Role;
 import com.example.tennis.kz.model.User;
-import com.example.tennis.kz.model.UserInfo;
 import com.example.tennis.kz.model.response.CustomPageResponse;
 import com.example.tennis.kz.model.response.UserSearchResultDto;
+import com.example.tennis.kz.service.LeaderboardService;
 import com.example.tennis.kz.service.TournamentRegistrationService;
 import com.example.tennis.kz.service.UserService;
 import lombok.RequiredArgsConstructor;
@@ -27,6 +28,7 @@ public class UserController {
 
     private final UserService userService;
     private final TournamentRegistrationService registrationService;
+    private final LeaderboardService leaderboardService;
 
 
     @PutMapping("/update")
@@ -35,8 +37,9 @@ public class UserController {
     @RequestParam(required = false) String lastName,
     @RequestParam(required = false) String phone,
     @RequestParam(required = false) Float rating,
-    @RequestParam(required = false) Integer age) {
-        var user = userService.updateUser(userService.getAuthenticatedUser(), gender, firstName, lastName, phone, rating, age);
+    @RequestParam(required = false) Integer age,
+    @RequestParam(required = false) City city) {
+        var user = userService.updateUser(userService.getAuthenticatedUser(), gender, firstName, lastName, phone, rating, age, city);
         return ResponseEntity.ok(user);
     }
     @GetMapping("/authenticated")
@@ -81,6 +84,14 @@ public class UserController {
         Page<User> users = userService.findAllUsers(pageable);
         return ResponseEntity.ok(new CustomPageResponse<>(users.getNumber() + 1, users.getSize(), users.getTotalElements(), users.getContent()));
     }
+    // Keyset-пагинация: без OFFSET, COUNT только при withTotal=true
+    @GetMapping("/scroll")
+    public ResponseEntity<?> scrollUsers(@RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "10") int size,
+                                         @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(userService.scrollUsers(cursor, size, withTotal));
+    }
+
     @DeleteMapping("/all")
     public ResponseEntity<String> deleteAllUsers() {
         try {
@@ -105,7 +116,8 @@ public class UserController {
         // Ограничиваем размер страницы для безопасности и производительности
         int finalSize = Math.min(size, 50); // Например, не больше 50 результатов за раз
 
-        Pageable pageable = PageRequest.of(page-1, finalSize, Sort.by("userInfo.firstName").ascending().and(Sort.by("userInfo.lastName").ascending()));
+        // Результаты упорядочены по похожести на запрос, поэтому сортировка не задается
+        Pageable pageable = PageRequest.of(page-1, finalSize);
 
         Page<UserSearchResultDto> results = userService.searchUsersByName(nameQuery, pageable);
 
@@ -124,25 +136,27 @@ public class UserController {
     @GetMapping("/points-leaderboard") // Descriptive endpoint name
     public ResponseEntity<?> getUserInfoLeaderboard(
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size) {
-
-        // Always sort by "points" in descending order
-        Sort sort = Sort.by(Sort.Order.desc("points"));
-
-        // Adjust page number to be 0-indexed for Spring Data Pageable
-        Pageable pageable = PageRequest.of(page - 1, size, sort);
-
-        Page<UserInfo> userInfoPage = userService.getPaginatedUserInfo(pageable);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Gender gender,
+            @RequestParam(required = false) City city) {
+        // Страницы отдаются из материализованного снимка рейтинга, без OFFSET и COUNT в БД
+        return ResponseEntity.ok(leaderboardService.getPage(page, size, gender, city));
+    }
 
-        // Wrap in your CustomPageResponse
-        CustomPageResponse<UserInfo> response = new CustomPageResponse<>(
-                userInfoPage.getNumber() + 1, // Convert 0-indexed back to 1-indexed for response
-                userInfoPage.getSize(),
-                userInfoPage.getTotalElements(),
-                userInfoPage.getContent()
-        );
+    @GetMapping("/points-leaderboard/scroll")
+    public ResponseEntity<?> scrollLeaderboard(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(required = false) Gender gender,
+            @RequestParam(required = false) City city) {
+        return ResponseEntity.ok(leaderboardService.scroll(cursor, size, withTotal, gender, city));
+    }
 
-        return ResponseEntity.ok(response);
+    @GetMapping("/points-leaderboard/me")
+    public ResponseEntity<?> getMyLeaderboardRank(
+            @RequestParam(required = false) Gender gender,
+            @RequestParam(required = false) City city) {
+        return ResponseEntity.ok(leaderboardService.getRank(userService.getAuthenticatedUser().getId(), gender, city));
     }
 }
-
@@ -1,6 +1,7 @@
 package com.example.tennis.kz.controller;
 
 
+import com.example.tennis.kz.model.response.CursorPageResponse;
 import com.example.tennis.kz.model.response.MatchHistoryDTO;
 import com.example.tennis.kz.model.response.UserStatsDTO;
 import com.example.tennis.kz.service.UserActivityService;
@@ -44,6 +45,18 @@ public class UserProfileController {
         return ResponseEntity.ok(matchHistory);
     }
 
+    @GetMapping("/profile/matches/scroll")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Get match history for the authenticated user (cursor pagination)",
+            description = "Keyset-paginated match history ordered by completion time (unfinished matches last), then by ID. " +
+                    "Pass nextCursor from the previous response to get the next page.")
+    public ResponseEntity<CursorPageResponse<MatchHistoryDTO>> scrollCurrentUserMatchHistory(
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Number of items per page") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Also return the total count") @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(userActivityService.scrollCurrentUserMatchHistory(cursor, size, withTotal));
+    }
+
     @GetMapping("/profile/stats")
     @PreAuthorize("isAuthenticated()")
     @Operation(summary = "Get statistics for the authenticated user",
@@ -72,6 +85,18 @@ public class UserProfileController {
         return ResponseEntity.ok(matchHistory);
     }
 
+    @GetMapping("/users/{userId}/matches/scroll")
+    @PreAuthorize("hasRole('ADMIN') or #userId == authentication.principal.id")
+    @Operation(summary = "Get match history for a specific user (cursor pagination)",
+            description = "Keyset-paginated variant of /users/{userId}/matches.")
+    public ResponseEntity<CursorPageResponse<MatchHistoryDTO>> scrollUserMatchHistoryById(
+            @Parameter(description = "ID of the user") @PathVariable Long userId,
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Number of items per page") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Also return the total count") @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(userActivityService.scrollUserMatchHistory(userId, cursor, size, withTotal));
+    }
+
     @GetMapping("/users/{userId}/stats")
     @PreAuthorize("hasRole('ADMIN') or #userId == authentication.principal.id")
     @Operation(summary = "Get statistics for a specific user",
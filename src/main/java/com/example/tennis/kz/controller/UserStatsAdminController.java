@@ -0,0 +1,27 @@
+package com.example.tennis.kz.controller;
+
+import com.example.tennis.kz.service.UserStatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/user-stats")
+@RequiredArgsConstructor
+@Tag(name = "Admin User Stats", description = "Maintenance of the per-user statistics summary")
+@PreAuthorize("hasRole('ADMIN')")
+public class UserStatsAdminController {
+
+    private final UserStatsService userStatsService;
+
+    @PostMapping("/rebuild")
+    @Operation(summary = "Recompute user statistics from matches and report drifted rows")
+    public ResponseEntity<UserStatsService.RebuildResult> rebuild() {
+        return ResponseEntity.ok(userStatsService.rebuildAll());
+    }
+}
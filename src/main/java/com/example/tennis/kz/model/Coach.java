@@ -18,7 +18,7 @@ import java.util.Set;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table
+@Table(indexes = @Index(name = "idx_coach_created_at_id", columnList = "created_at, coach_id")) // Keyset-пагинация
 @Builder
 public class Coach {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
@@ -56,6 +56,7 @@ public class Coach {
     private Set<CoachService> services = new HashSet<>();
 
     @CreationTimestamp
+    @Column(name = "created_at")
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime createdAt;
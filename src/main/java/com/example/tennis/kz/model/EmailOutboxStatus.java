@@ -0,0 +1,7 @@
+package com.example.tennis.kz.model;
+
+public enum EmailOutboxStatus {
+    PENDING, // Ожидает отправки (в том числе повторной после next_attempt_at)
+    SENT,    // Доставлено на SMTP-сервер
+    FAILED   // Исчерпаны попытки отправки
+}
@@ -0,0 +1,38 @@
+package com.example.tennis.kz.model;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal, собранный из claims access-токена без загрузки User из БД.
+ * Сущность пользователя при необходимости загружается по id (UserService.getAuthenticatedUser).
+ */
+public record JwtPrincipal(Long id, String email, Role role) implements UserDetails {
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(() -> "ROLE_" + role.name());
+    }
+
+    @Override
+    public String getPassword() {
+        return null; // Аутентификация уже выполнена по подписи токена
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true; // Отключенные учетные записи отсекаются фильтром до создания principal
+    }
+}
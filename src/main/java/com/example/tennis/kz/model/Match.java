@@ -53,7 +53,8 @@ public class Match {
     // Ссылка на следующий матч, куда проходит победитель
     // Используется для построения дерева сетки
     @JsonIgnore // Чтобы избежать глубокой рекурсии при сериализации
-    @OneToOne(fetch = FetchType.LAZY)
+    // В один следующий матч выходят победители двух матчей, поэтому связь многие-к-одному (OneToOne давал UNIQUE)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "next_match_id")
     private Match nextMatch; // Матч, в который переходит победитель
 
@@ -74,12 +75,16 @@ public class Match {
     @Transient
     public String getRoundName() {
         if (this.tournament == null || this.roundNumber == null) return "N/A";
-        int totalRounds = this.tournament.getTotalRounds();
-        if (this.roundNumber == totalRounds) return "Финал";
-        if (this.roundNumber == totalRounds - 1) return "Полуфинал";
-        if (this.roundNumber == totalRounds - 2) return "Четвертьфинал";
+        return roundName(this.roundNumber, this.tournament.getTotalRounds());
+    }
+
+    // Название раунда без обращения к сущностям (используется и read-моделью сетки)
+    public static String roundName(int roundNumber, int totalRounds) {
+        if (roundNumber == totalRounds) return "Финал";
+        if (roundNumber == totalRounds - 1) return "Полуфинал";
+        if (roundNumber == totalRounds - 2) return "Четвертьфинал";
         // Для более ранних раундов
-        int participantsPower = (int) Math.pow(2, totalRounds - this.roundNumber + 1);
+        int participantsPower = (int) Math.pow(2, totalRounds - roundNumber + 1);
         return "1/" + (participantsPower / 2) + " финала";
     }
 
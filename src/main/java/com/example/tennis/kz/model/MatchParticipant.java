@@ -0,0 +1,57 @@
+package com.example.tennis.kz.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Участие пользователя в матче: одна строка на (матч, пользователь), включая партнеров в парных регистрациях.
+ * Денормализует четыре пути match -> participant{1,2} -> {user, partner}, чтобы запросы "матчи пользователя"
+ * шли диапазоном по индексу (user_id, completed_time desc, match_id desc) — он создается в
+ * MatchParticipantJdbcRepository.ensureIndexes. Синхронизируется сервисами сетки и матчей.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "match_participants",
+        uniqueConstraints = @UniqueConstraint(name = "uk_match_participants_match_user",
+                columnNames = {"match_id", "user_id"}))
+public class MatchParticipant {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "match_id", nullable = false)
+    private Long matchId;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "match_id", insertable = false, updatable = false)
+    private Match match;
+
+    @Column(name = "tournament_id", nullable = false)
+    private Long tournamentId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "registration_id", nullable = false)
+    private Long registrationId;
+
+    @Column(nullable = false)
+    private Integer side; // 1 или 2 — слот регистрации в матче
+
+    @Column(name = "completed_time")
+    private LocalDateTime completedTime; // Копия matches.completed_time для сортировки по индексу
+}
@@ -15,6 +15,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = @Index(name = "idx_news_created_at_id", columnList = "created_at, coach_id")) // Keyset-пагинация
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -54,4 +55,13 @@ public class News {
 
     @Column(name = "image_content_type") // Новое поле
     private String imageContentType;
+
+    // Загрузка изображения идет после коммита новости; null у новостей, созданных до появления статуса
+    @Enumerated(EnumType.STRING)
+    @Column(name = "image_status", length = 16)
+    private NewsImageStatus imageStatus;
+
+    // Ширины готовых уменьшенных копий через запятую ("320,640"); null — есть только оригинал
+    @Column(name = "image_variants", length = 64)
+    private String imageVariants;
 }
@@ -0,0 +1,7 @@
+package com.example.tennis.kz.model;
+
+public enum NewsImageStatus {
+    PENDING, // Новость сохранена, изображение еще загружается в R2
+    READY,   // Изображение доступно (null у старых новостей означает то же самое)
+    FAILED   // Загрузка не удалась, изображения нет
+}
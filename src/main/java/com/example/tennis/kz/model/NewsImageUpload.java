@@ -0,0 +1,38 @@
+package com.example.tennis.kz.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Выданная подписанная ссылка на загрузку изображения новости. Создать новость по ключу может только
+ * получивший ссылку пользователь и только до expiresAt; при создании новости запись удаляется.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "news_image_uploads",
+        indexes = @Index(name = "idx_news_image_uploads_expires_at", columnList = "expires_at"))
+public class NewsImageUpload {
+    @Id
+    @Column(name = "image_key", length = 300)
+    private String imageKey;
+
+    @Column(name = "uploader_user_id", nullable = false)
+    private Long uploaderId;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(name = "content_length", nullable = false)
+    private long contentLength;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -16,7 +16,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table
+@Table(indexes = @Index(name = "idx_partner_created_at_id", columnList = "created_at, partner_id")) // Keyset-пагинация
 public class Partner {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     @Id
@@ -36,6 +36,7 @@ public class Partner {
     private String stadium;
     private String description;
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "created_at")
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime createdAt;
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
@@ -0,0 +1,48 @@
+package com.example.tennis.kz.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись журнала начисления рейтинговых очков (только добавление).
+ * Уникальность (турнир, регистрация, игрок) гарантирует, что очки за турнир начисляются ровно один раз.
+ * UserInfo.points — материализованная сумма этого журнала.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "points_ledger",
+        uniqueConstraints = @UniqueConstraint(name = "uk_points_ledger_award",
+                columnNames = {"tournament_id", "registration_id", "user_id"}),
+        indexes = @Index(name = "idx_points_ledger_user", columnList = "user_id"))
+public class PointsLedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Простые id вместо связей: турнир может быть удален, а история начислений должна остаться
+    @Column(name = "tournament_id", nullable = false)
+    private Long tournamentId;
+
+    @Column(name = "registration_id", nullable = false)
+    private Long registrationId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "round_reached", nullable = false)
+    private Integer roundReached;
+
+    @Column(nullable = false)
+    private Integer points;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -6,14 +6,19 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 
-
+/**
+ * Активный refresh-токен пользователя (один на пользователя). В БД хранится только SHA-256 токена
+ * фиксированной длины с уникальным индексом; сам токен отдается клиенту один раз при выпуске.
+ */
 @Entity
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "Refresh_token")
+@Table(name = "Refresh_token",
+        indexes = @Index(name = "idx_refresh_token_expires_at", columnList = "expires_at"))
 public class RefreshToken {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,6 +29,12 @@ public class RefreshToken {
     @JoinColumn(name = "user_id")
     private User user;
 
-    @Column(name = "refresh_token")
-    private String refreshToken;
-}
\ No newline at end of file
+    @Column(name = "token_hash", length = 64, unique = true)
+    private String tokenHash;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Transient
+    private String refreshToken; // Сырой токен, заполнен только у только что выпущенного
+}
@@ -21,7 +21,8 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
-@Table(name = "tournaments") // Рекомендую использовать множественное число для таблиц
+@Table(name = "tournaments", // Рекомендую использовать множественное число для таблиц
+        indexes = @Index(name = "idx_tournaments_created_at_id", columnList = "created_at, tournament_id")) // Keyset-пагинация
 public class Tournament {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     @Id
@@ -62,6 +63,7 @@ public class Tournament {
     private int cost; // Стоимость участия
 
     @CreationTimestamp
+    @Column(name = "created_at")
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime createdAt;
@@ -71,6 +73,13 @@ public class Tournament {
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime updatedAt;
 
+    // Версия сетки: увеличивается SQL-запросом в той же транзакции, что и изменение сетки (см. BracketCache).
+    // JPA колонку не пишет, чтобы сохранение турнира не откатило параллельное увеличение
+    @JsonIgnore
+    @Column(name = "bracket_version", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private long bracketVersion;
+
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     @ManyToOne(fetch = FetchType.EAGER) // Автор турнира
     @JoinColumn(name = "author_user_id") // Явное имя колонки
@@ -111,7 +120,11 @@ public class Tournament {
     @Schema(accessMode = Schema.AccessMode.READ_ONLY)
     @Transient
     public int getTotalRounds() {
-        int participants = getMaxParticipants();
+        return totalRounds(this.tier);
+    }
+
+    public static int totalRounds(TournamentTier tier) {
+        int participants = tier != null ? tier.getMaxParticipants() : 0;
         if (participants <= 1) return 0; // Если 0 или 1 участник, раундов нет
         // log base 2 of participants
         return (int) (Math.log(participants) / Math.log(2));
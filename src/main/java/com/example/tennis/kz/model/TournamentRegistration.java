@@ -45,21 +45,34 @@ public class TournamentRegistration {
     // Вспомогательный метод для получения имени участника(ов) для отображения
     @Transient
     public String getParticipantName() {
-        if (user == null || user.getUserInfo() == null) return "N/A";
+        UserInfo userInfo = user != null ? user.getUserInfo() : null;
+        UserInfo partnerInfo = partner != null ? partner.getUserInfo() : null;
+        boolean doubles = tournament != null && tournament.getTournamentType() == TournamentType.DOUBLES;
+        return formatParticipantName(
+                userInfo != null, userInfo != null ? userInfo.getLastName() : null, userInfo != null ? userInfo.getFirstName() : null,
+                doubles && partnerInfo != null, partnerInfo != null ? partnerInfo.getLastName() : null, partnerInfo != null ? partnerInfo.getFirstName() : null);
+    }
 
-        String userDisplay = user.getUserInfo().getLastName() + " " +
-                (user.getUserInfo().getFirstName() != null && !user.getUserInfo().getFirstName().isEmpty() ?
-                        user.getUserInfo().getFirstName().substring(0, 1).toUpperCase() + "." : "");
+    /**
+     * То же имя, что и {@link #getParticipantName()}, но из уже выбранных колонок — для проекций без загрузки сущностей.
+     * {@code withPartner} — турнир парный и у партнера есть UserInfo.
+     */
+    public static String formatParticipantName(boolean hasUserInfo, String lastName, String firstName,
+                                               boolean withPartner, String partnerLastName, String partnerFirstName) {
+        if (!hasUserInfo) return "N/A";
 
-        if (tournament != null && tournament.getTournamentType() == TournamentType.DOUBLES && partner != null && partner.getUserInfo() != null) {
-            String partnerDisplay = partner.getUserInfo().getLastName() + " " +
-                    (partner.getUserInfo().getFirstName() != null && !partner.getUserInfo().getFirstName().isEmpty() ?
-                            partner.getUserInfo().getFirstName().substring(0, 1).toUpperCase() + "." : "");
-            return userDisplay + " / " + partnerDisplay;
+        String userDisplay = shortName(lastName, firstName);
+        if (withPartner) {
+            return userDisplay + " / " + shortName(partnerLastName, partnerFirstName);
         }
         return userDisplay;
     }
 
+    private static String shortName(String lastName, String firstName) {
+        return lastName + " " +
+                (firstName != null && !firstName.isEmpty() ? firstName.substring(0, 1).toUpperCase() + "." : "");
+    }
+
     // Вспомогательный метод для получения главного игрока (для одиночек или первого в паре)
     @Transient
     public User getPrimaryPlayer() {
@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -19,7 +20,7 @@ import java.util.List;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "Users")
+@Table(name = "Users", indexes = @Index(name = "idx_users_created_at_id", columnList = "created_at, user_id")) // Keyset-пагинация
 public class User implements UserDetails {
 
     @Id
@@ -45,7 +46,9 @@ public class User implements UserDetails {
     @Column(name = "enabled")
     private boolean enabled;
 
-    @Column(name = "created_at")
+    // Ключ keyset-пагинации: строки с NULL из нее выпадали бы. Старые строки заполняет UserJdbcRepository.backfillCreatedAt
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime createdAt;
 
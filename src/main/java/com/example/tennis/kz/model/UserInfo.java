@@ -29,4 +29,7 @@ public class UserInfo {
     private Integer age;
     private Float points;
 
+    @Enumerated(EnumType.STRING)
+    private City city;
+
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.example.tennis.kz.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Нормализованное имя пользователя для поиска: одна строка на пользователя.
+ * search_text — имя и фамилия в нижнем регистре со свернутыми казахскими буквами и диакритикой,
+ * для кириллических имен дополненные латинской транслитерацией. Триграммный GiST-индекс по этой колонке
+ * создается в UserSearchJdbcRepository.ensureIndexes, синхронизацию ведет UserSearchService.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "user_search")
+public class UserSearchEntry {
+    // Простой id вместо связи: строка удаляется вместе с пользователем явными вызовами
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "search_text", nullable = false, columnDefinition = "TEXT")
+    private String searchText;
+}
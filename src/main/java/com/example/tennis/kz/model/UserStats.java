@@ -0,0 +1,60 @@
+package com.example.tennis.kz.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Сводная статистика пользователя по завершенным матчам (одна строка на пользователя).
+ * Инкрементально обновляется в транзакции записи результата (см. UserStatsService),
+ * при расхождениях пересобирается из matches.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "user_stats")
+public class UserStats {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "played", nullable = false)
+    private long played;
+
+    @Column(name = "wins", nullable = false)
+    private long wins;
+
+    @Column(name = "losses", nullable = false)
+    private long losses;
+
+    @Column(name = "singles_played", nullable = false)
+    private long singlesPlayed;
+
+    @Column(name = "singles_wins", nullable = false)
+    private long singlesWins;
+
+    @Column(name = "doubles_played", nullable = false)
+    private long doublesPlayed;
+
+    @Column(name = "doubles_wins", nullable = false)
+    private long doublesWins;
+
+    @Builder.Default
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "user_stats_tier_wins", joinColumns = @JoinColumn(name = "user_id"))
+    @MapKeyEnumerated(EnumType.STRING)
+    @MapKeyColumn(name = "tier")
+    @Column(name = "wins", nullable = false)
+    private Map<TournamentTier, Long> winsByTier = new HashMap<>();
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
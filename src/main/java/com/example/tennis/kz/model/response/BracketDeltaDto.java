@@ -0,0 +1,28 @@
+package com.example.tennis.kz.model.response;
+
+import com.example.tennis.kz.model.MatchStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Изменение сетки, рассылаемое по SSE: результат матча и (если есть) заполненный слот следующего матча.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BracketDeltaDto {
+    private Long tournamentId;
+    private Long matchId;
+    private MatchStatus status;
+    private String score;
+    private Long winnerRegistrationId;
+    private String winnerName;
+
+    // Слот следующего матча, который занял победитель (null для финала)
+    private Long nextMatchId;
+    private Integer nextMatchSlot;
+    private MatchStatus nextMatchStatus;
+}
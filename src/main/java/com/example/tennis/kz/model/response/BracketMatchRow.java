@@ -0,0 +1,50 @@
+package com.example.tennis.kz.model.response;
+
+import com.example.tennis.kz.model.Category;
+import com.example.tennis.kz.model.MatchStatus;
+import com.example.tennis.kz.model.TournamentTier;
+
+import java.time.LocalDateTime;
+
+/**
+ * Плоская строка сетки из JPQL constructor expression (см. MatchRepository.findBracketRows).
+ * Содержит все, что нужно для {@link MatchDto}, поэтому сущности Match/TournamentRegistration/User не поднимаются.
+ * Колонки "...InfoId" нужны только чтобы отличить отсутствующий UserInfo от пустых имен.
+ */
+public record BracketMatchRow(
+        Long id,
+        Integer roundNumber,
+        Integer matchNumberInBracket,
+        String score,
+        MatchStatus status,
+        LocalDateTime scheduledTime,
+        LocalDateTime completedTime,
+        Long nextMatchId,
+        Integer nextMatchSlot,
+        Long winnerRegistrationId,
+        TournamentTier tier,
+        Category category,
+
+        Long participant1RegistrationId,
+        Integer participant1SeedNumber,
+        Long participant1UserId,
+        Long participant1UserInfoId,
+        String participant1LastName,
+        String participant1FirstName,
+        Long participant1PartnerId,
+        Long participant1PartnerInfoId,
+        String participant1PartnerLastName,
+        String participant1PartnerFirstName,
+
+        Long participant2RegistrationId,
+        Integer participant2SeedNumber,
+        Long participant2UserId,
+        Long participant2UserInfoId,
+        String participant2LastName,
+        String participant2FirstName,
+        Long participant2PartnerId,
+        Long participant2PartnerInfoId,
+        String participant2PartnerLastName,
+        String participant2PartnerFirstName
+) {
+}
@@ -0,0 +1,45 @@
+package com.example.tennis.kz.model.response;
+
+import com.example.tennis.kz.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница keyset-пагинации. nextCursor == null — это последняя страница.
+ * totalCount заполняется только по запросу (withTotal=true), чтобы не выполнять COUNT(*) на каждой странице.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResponse<T> {
+
+    public static final int MAX_SIZE = 100;
+
+    private Integer size;
+    private String nextCursor;
+    private Long totalCount;
+    private List<T> data;
+
+    /** Сколько строк запросить у БД: на одну больше страницы, чтобы понять, есть ли продолжение. */
+    public static int fetchSize(int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new BadRequestException("Размер страницы должен быть от 1 до " + MAX_SIZE + ".");
+        }
+        return size + 1;
+    }
+
+    /**
+     * Собирает ответ из выборки размером до size + 1 строк; курсор строится по последней отданной строке.
+     */
+    public static <E, T> CursorPageResponse<T> of(List<E> fetched, int size, Function<E, String> cursorOf,
+                                                  Function<E, T> mapper, Long totalCount) {
+        boolean hasNext = fetched.size() > size;
+        List<E> page = hasNext ? fetched.subList(0, size) : fetched;
+        String nextCursor = hasNext ? cursorOf.apply(page.get(page.size() - 1)) : null;
+        return new CursorPageResponse<>(size, nextCursor, totalCount, page.stream().map(mapper).toList());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.tennis.kz.model.response;
+
+import com.example.tennis.kz.model.City;
+import com.example.tennis.kz.model.Gender;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardEntryDto {
+    private Integer rank; // Место в выбранном срезе; при равенстве очков места совпадают (1, 2, 2, 4)
+    private Long userId;
+
+    // Поля UserInfo, которые раньше отдавались этим эндпоинтом
+    private Gender gender;
+    private String firstName;
+    private String lastName;
+    private String phone;
+    private Float rating;
+    private Integer age;
+    private Float points;
+    private City city;
+}
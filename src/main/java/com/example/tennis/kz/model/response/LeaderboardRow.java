@@ -0,0 +1,20 @@
+package com.example.tennis.kz.model.response;
+
+import com.example.tennis.kz.model.City;
+import com.example.tennis.kz.model.Gender;
+
+/**
+ * Строка снимка рейтинга из JPQL constructor expression (см. UserInfoRepository.findLeaderboardRows).
+ */
+public record LeaderboardRow(
+        Long userId,
+        String firstName,
+        String lastName,
+        Gender gender,
+        City city,
+        String phone,
+        Float rating,
+        Integer age,
+        Float points
+) {
+}
@@ -0,0 +1,54 @@
+package com.example.tennis.kz.model.response;
+
+import com.example.tennis.kz.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор keyset-пагинации: значение ключа сортировки последней отданной строки + ее id.
+ * Клиенту отдается как base64url-строка и возвращается без изменений в параметре cursor.
+ */
+public record PageCursor(String key, long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static String encode(Object key, long id) {
+        String raw = (key != null ? key.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** null для первой страницы. */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new PageCursor(raw.substring(0, separator), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException("Некорректный курсор страницы.");
+        }
+    }
+
+    public LocalDateTime keyAsDateTime() {
+        if (key.isEmpty()) return null;
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Некорректный курсор страницы.");
+        }
+    }
+
+    public Float keyAsFloat() {
+        if (key.isEmpty()) return null;
+        try {
+            return Float.valueOf(key);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Некорректный курсор страницы.");
+        }
+    }
+}
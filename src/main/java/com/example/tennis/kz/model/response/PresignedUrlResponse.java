@@ -0,0 +1,25 @@
+package com.example.tennis.kz.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Короткоживущая подписанная ссылка на объект в R2. Для загрузки (PUT) клиент обязан отправить
+ * заголовки из signedHeaders без изменений, иначе подпись не совпадет.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class PresignedUrlResponse {
+    private String key;
+    private String url;
+    private String method;
+    private Map<String, String> signedHeaders;
+    private Instant expiresAt;
+}
@@ -0,0 +1,7 @@
+package com.example.tennis.kz.model.response;
+
+/**
+ * Имя и фамилия пользователя для построения поискового индекса. См. UserRepository.findNamesAfter.
+ */
+public record UserNameRow(Long id, String firstName, String lastName) {
+}
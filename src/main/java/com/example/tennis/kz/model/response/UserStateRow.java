@@ -0,0 +1,9 @@
+package com.example.tennis.kz.model.response;
+
+import com.example.tennis.kz.model.Role;
+
+/**
+ * Состояние учетной записи, нужное для авторизации запроса: роль и признак активности. См. UserRepository.findUserState.
+ */
+public record UserStateRow(Long id, Role role, boolean enabled) {
+}
@@ -0,0 +1,12 @@
+package com.example.tennis.kz.model.response;
+
+import com.example.tennis.kz.model.Category;
+import com.example.tennis.kz.model.TournamentTier;
+
+/**
+ * Агрегат по завершенным матчам пользователя в разрезе (уровень, категория) турнира.
+ * played и losses — только матчи с обоими соперниками, wins — все победы, включая проход по bye.
+ * См. UserStatsJdbcRepository.aggregateForUsers.
+ */
+public record UserStatsRow(Long userId, TournamentTier tier, Category category, Long played, Long wins, Long losses) {
+}
@@ -7,9 +7,22 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
 
 @Repository
 public interface CoachRepository extends JpaRepository<Coach, Long> {
     List<Coach> findByEnabledOrderByCostAsc(Boolean enabled);
     Page<Coach> findAllByEnabled(Pageable pageable, Boolean enabled);
+
+    // Keyset-пагинация по (createdAt desc, id desc): первая страница и страница после курсора
+    @Query("SELECT c FROM Coach c WHERE c.enabled = :enabled ORDER BY c.createdAt DESC, c.id DESC")
+    List<Coach> scrollFirst(@Param("enabled") Boolean enabled, Pageable limit);
+
+    @Query("SELECT c FROM Coach c WHERE c.enabled = :enabled AND (c.createdAt < :createdAt " +
+            "OR (c.createdAt = :createdAt AND c.id < :id)) ORDER BY c.createdAt DESC, c.id DESC")
+    List<Coach> scrollAfter(@Param("enabled") Boolean enabled, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable limit);
+
+    long countByEnabled(Boolean enabled);
 }
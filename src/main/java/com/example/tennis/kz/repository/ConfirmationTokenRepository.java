@@ -1,16 +1,27 @@
 package com.example.tennis.kz.repository;
 
 import com.example.tennis.kz.model.ConfirmationToken;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Date;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ConfirmationTokenRepository extends JpaRepository<ConfirmationToken, Long> {
     Optional<ConfirmationToken> findConfirmationTokenByConfirmationToken(String confirmationToken);
-    LinkedList<ConfirmationToken> findAllByExpirationDateBefore(Date date);
 
-}
\ No newline at end of file
+    // id токена совпадает с user_id (@MapsId); грузятся только id, без сущностей
+    @Query("SELECT ct.id FROM ConfirmationToken ct WHERE ct.expirationDate < :now ORDER BY ct.id")
+    List<Long> findExpiredIds(@Param("now") Date now, Pageable limit);
+
+    @Modifying
+    @Query("DELETE FROM ConfirmationToken ct WHERE ct.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,75 @@
+package com.example.tennis.kz.repository;
+
+import com.example.tennis.kz.model.EmailOutboxStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Выборка и пометка писем outbox для диспетчера.
+ * Захват — один UPDATE ... RETURNING, который ставит аренду locked_until на пачку, выбранную через
+ * FOR UPDATE SKIP LOCKED: параллельные воркеры (в том числе на разных экземплярах) берут непересекающиеся
+ * пачки, а блокировки строк держатся только на время этого запроса, не на время SMTP-сессии.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmailOutboxJdbcRepository {
+
+    private static final String CLAIM_SQL = "UPDATE email_outbox SET locked_until = ? WHERE id IN (" +
+            "SELECT id FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= ? " +
+            "AND (locked_until IS NULL OR locked_until < ?) ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, recipient, subject, body, attempts";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record OutboxMail(long id, String recipient, String subject, String body, int attempts) {
+    }
+
+    /**
+     * Захватывает до limit готовых к отправке писем до lockedUntil. Если воркер упадет, не сняв аренду,
+     * письма снова станут доступны после ее истечения.
+     */
+    public List<OutboxMail> claimBatch(LocalDateTime now, LocalDateTime lockedUntil, int limit) {
+        Timestamp nowTs = Timestamp.valueOf(now);
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new OutboxMail(rs.getLong("id"), rs.getString("recipient"),
+                        rs.getString("subject"), rs.getString("body"), rs.getInt("attempts")),
+                Timestamp.valueOf(lockedUntil), nowTs, nowTs, limit);
+    }
+
+    public void markSent(List<Long> ids, LocalDateTime sentAt) {
+        jdbcTemplate.batchUpdate("UPDATE email_outbox SET status = 'SENT', sent_at = ?, attempts = attempts + 1, " +
+                        "locked_until = NULL WHERE id = ?",
+                ids.stream().map(id -> new Object[]{Timestamp.valueOf(sentAt), id}).toList());
+    }
+
+    /** Откладывает письмо до nextAttemptAt или, если это была последняя попытка, помечает FAILED. */
+    public void markFailed(long id, boolean giveUp, LocalDateTime nextAttemptAt, String error) {
+        jdbcTemplate.update("UPDATE email_outbox SET status = ?, attempts = attempts + 1, next_attempt_at = ?, " +
+                        "last_error = ?, locked_until = NULL WHERE id = ?",
+                (giveUp ? EmailOutboxStatus.FAILED : EmailOutboxStatus.PENDING).name(),
+                Timestamp.valueOf(nextAttemptAt), error, id);
+    }
+
+    /** Возвращает в очередь письма FAILED, созданные не раньше since; счетчик попыток обнуляется. */
+    public int reviveFailed(LocalDateTime since, LocalDateTime nextAttemptAt) {
+        return jdbcTemplate.update("UPDATE email_outbox SET status = 'PENDING', attempts = 0, next_attempt_at = ?, " +
+                "locked_until = NULL WHERE status = 'FAILED' AND created_at >= ?",
+                Timestamp.valueOf(nextAttemptAt), Timestamp.valueOf(since));
+    }
+
+    /** Число писем, ожидающих отправки (в том числе отложенных после неудачной попытки). */
+    public long countPending() {
+        Long pending = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email_outbox WHERE status = 'PENDING'", Long.class);
+        return pending != null ? pending : 0;
+    }
+
+    /** Удаляет пачку отправленных писем старше указанного момента; возвращает число удаленных. */
+    public int deleteSentBefore(LocalDateTime before, int limit) {
+        return jdbcTemplate.update("DELETE FROM email_outbox WHERE id IN (SELECT id FROM email_outbox " +
+                "WHERE status = 'SENT' AND sent_at < ? LIMIT ?)", Timestamp.valueOf(before), limit);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.tennis.kz.repository;
+
+import com.example.tennis.kz.model.Match;
+import com.example.tennis.kz.model.TournamentRegistration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Массовая запись сгенерированной сетки в обход Hibernate.
+ * <p>
+ * У {@link Match} стратегия IDENTITY, поэтому {@code saveAll} вставляет матчи по одному и затем
+ * досылает UPDATE для {@code next_match_id}. Здесь id резервируются из последовательности одним запросом,
+ * после чего все матчи (вместе со ссылками на следующий матч) уходят одним batch-INSERT.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MatchJdbcRepository {
+
+    private static final int BATCH_SIZE = 128;
+
+    private static final String RESERVE_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('matches', 'id')) FROM generate_series(1, ?)";
+
+    private static final String INSERT_SQL = "INSERT INTO matches (id, tournament_id, round_number, match_number_in_bracket, " +
+            "participant1_reg_id, participant2_reg_id, winner_reg_id, next_match_id, next_match_slot, " +
+            "score, status, scheduled_time, completed_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Ограничение UNIQUE (next_match_id), оставшееся от прежнего отображения nextMatch как OneToOne
+    private static final String NEXT_MATCH_UNIQUE_SQL = "SELECT c.conname FROM pg_constraint c " +
+            "JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = c.conkey[1] " +
+            "WHERE c.conrelid = 'matches'::regclass AND c.contype = 'u' " +
+            "AND array_length(c.conkey, 1) = 1 AND a.attname = 'next_match_id'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Снимает UNIQUE с next_match_id: ddl-auto=update не удаляет ограничения, а с ним в БД не помещается
+     * ни одна сетка, где в следующий матч ведут два матча. Возвращает число снятых ограничений.
+     */
+    public int dropNextMatchUniqueConstraint() {
+        List<String> names = jdbcTemplate.queryForList(NEXT_MATCH_UNIQUE_SQL, String.class);
+        for (String name : names) {
+            jdbcTemplate.execute("ALTER TABLE matches DROP CONSTRAINT \"" + name.replace("\"", "\"\"") + "\"");
+        }
+        return names.size();
+    }
+
+    /**
+     * Вставляет новые матчи сетки и проставляет им id. Все ссылки {@code nextMatch} должны указывать
+     * на матчи из того же списка.
+     */
+    public List<Match> insertBracket(List<Match> matches) {
+        if (matches.isEmpty()) {
+            return matches;
+        }
+        List<Long> ids = jdbcTemplate.queryForList(RESERVE_IDS_SQL, Long.class, matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            matches.get(i).setId(ids.get(i));
+        }
+
+        // FK next_match_id требует, чтобы родитель был вставлен раньше: идем от финала к первому кругу
+        List<Match> parentsFirst = new ArrayList<>(matches);
+        parentsFirst.sort(Comparator.comparing(Match::getRoundNumber).reversed());
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, parentsFirst, BATCH_SIZE, (ps, match) -> {
+            ps.setLong(1, match.getId());
+            ps.setLong(2, match.getTournament().getId());
+            ps.setInt(3, match.getRoundNumber());
+            ps.setInt(4, match.getMatchNumberInBracket());
+            setNullableLong(ps, 5, registrationId(match.getParticipant1()));
+            setNullableLong(ps, 6, registrationId(match.getParticipant2()));
+            setNullableLong(ps, 7, registrationId(match.getWinner()));
+            setNullableLong(ps, 8, match.getNextMatch() != null ? match.getNextMatch().getId() : null);
+            if (match.getNextMatchSlot() != null) {
+                ps.setInt(9, match.getNextMatchSlot());
+            } else {
+                ps.setNull(9, Types.INTEGER);
+            }
+            ps.setString(10, match.getScore());
+            ps.setString(11, match.getStatus().name());
+            setNullableTimestamp(ps, 12, match.getScheduledTime());
+            setNullableTimestamp(ps, 13, match.getCompletedTime());
+        });
+        return matches;
+    }
+
+    private static Long registrationId(TournamentRegistration registration) {
+        return registration != null ? registration.getId() : null;
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private static void setNullableTimestamp(PreparedStatement ps, int index, LocalDateTime value) throws SQLException {
+        if (value != null) {
+            ps.setTimestamp(index, Timestamp.valueOf(value));
+        } else {
+            ps.setNull(index, Types.TIMESTAMP);
+        }
+    }
+}
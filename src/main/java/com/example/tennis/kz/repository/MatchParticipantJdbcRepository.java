@@ -0,0 +1,97 @@
+package com.example.tennis.kz.repository;
+
+import com.example.tennis.kz.model.Match;
+import com.example.tennis.kz.model.TournamentRegistration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Синхронизация match_participants с матчами пакетными INSERT/UPDATE.
+ * Вставка идемпотентна (ON CONFLICT по (match_id, user_id)), поэтому повторная запись того же участника безопасна.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MatchParticipantJdbcRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO match_participants " +
+            "(match_id, tournament_id, user_id, registration_id, side, completed_time) VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (match_id, user_id) DO NOTHING";
+
+    // Строка на каждого игрока и партнера обеих регистраций матча
+    private static final String BACKFILL_SQL = "INSERT INTO match_participants " +
+            "(match_id, tournament_id, user_id, registration_id, side, completed_time) " +
+            "SELECT m.id, m.tournament_id, p.user_id, r.id, s.side, m.completed_time " +
+            "FROM matches m " +
+            "CROSS JOIN LATERAL (VALUES (1, m.participant1_reg_id), (2, m.participant2_reg_id)) AS s(side, registration_id) " +
+            "JOIN tournament_registrations r ON r.id = s.registration_id " +
+            "CROSS JOIN LATERAL (VALUES (r.user_id), (r.partner_id)) AS p(user_id) " +
+            "WHERE p.user_id IS NOT NULL " +
+            "ON CONFLICT (match_id, user_id) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Записывает участников всех заполненных слотов переданных матчей (id матчей уже должны быть назначены). */
+    public void insertForMatches(Collection<Match> matches) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Match match : matches) {
+            addRows(rows, match, 1, match.getParticipant1());
+            addRows(rows, match, 2, match.getParticipant2());
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+
+    /** Записывает участников регистрации, занявшей слот матча. */
+    public void insertForSlot(Match match, int side, TournamentRegistration registration) {
+        List<Object[]> rows = new ArrayList<>(2);
+        addRows(rows, match, side, registration);
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+
+    public void markCompleted(Long matchId, LocalDateTime completedTime) {
+        jdbcTemplate.update("UPDATE match_participants SET completed_time = ? WHERE match_id = ?",
+                completedTime != null ? Timestamp.valueOf(completedTime) : null, matchId);
+    }
+
+    public void deleteByTournamentId(Long tournamentId) {
+        jdbcTemplate.update("DELETE FROM match_participants WHERE tournament_id = ?", tournamentId);
+    }
+
+    /** Индекс под сортировку истории (completed_time desc nulls last, match_id desc); JPA такой порядок не описывает. */
+    public void ensureIndexes() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_match_participants_user_completed " +
+                "ON match_participants (user_id, completed_time DESC NULLS LAST, match_id DESC)");
+    }
+
+    /** Заполняет таблицу по существующим матчам, если она пуста. Возвращает число вставленных строк. */
+    public int backfillIfEmpty() {
+        Boolean needed = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM match_participants) AND EXISTS (SELECT 1 FROM matches)", Boolean.class);
+        return Boolean.TRUE.equals(needed) ? jdbcTemplate.update(BACKFILL_SQL) : 0;
+    }
+
+    private static void addRows(List<Object[]> rows, Match match, int side, TournamentRegistration registration) {
+        if (registration == null) {
+            return;
+        }
+        Timestamp completedTime = match.getCompletedTime() != null ? Timestamp.valueOf(match.getCompletedTime()) : null;
+        if (registration.getUser() != null) {
+            rows.add(new Object[]{match.getId(), match.getTournament().getId(), registration.getUser().getId(),
+                    registration.getId(), side, completedTime});
+        }
+        if (registration.getPartner() != null) {
+            rows.add(new Object[]{match.getId(), match.getTournament().getId(), registration.getPartner().getId(),
+                    registration.getId(), side, completedTime});
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.tennis.kz.repository;
 
 import com.example.tennis.kz.model.Match;
 import com.example.tennis.kz.model.Tournament;
+import com.example.tennis.kz.model.response.BracketMatchRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -9,39 +10,69 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface MatchRepository extends JpaRepository<Match, Long> {
     List<Match> findByTournamentIdOrderByRoundNumberAscMatchNumberInBracketAsc(Long tournamentId);
+
+    /**
+     * Read-модель сетки одним запросом: только колонки, без EAGER-загрузки регистраций, пользователей и турнира.
+     */
+    @Query("SELECT new com.example.tennis.kz.model.response.BracketMatchRow(" +
+            "m.id, m.roundNumber, m.matchNumberInBracket, m.score, m.status, m.scheduledTime, m.completedTime, " +
+            "nm.id, m.nextMatchSlot, w.id, t.tier, t.category, " +
+            "p1.id, p1.seedNumber, u1.id, ui1.id, ui1.lastName, ui1.firstName, pu1.id, pui1.id, pui1.lastName, pui1.firstName, " +
+            "p2.id, p2.seedNumber, u2.id, ui2.id, ui2.lastName, ui2.firstName, pu2.id, pui2.id, pui2.lastName, pui2.firstName) " +
+            "FROM Match m JOIN m.tournament t " +
+            "LEFT JOIN m.nextMatch nm LEFT JOIN m.winner w " +
+            "LEFT JOIN m.participant1 p1 LEFT JOIN p1.user u1 LEFT JOIN u1.userInfo ui1 " +
+            "LEFT JOIN p1.partner pu1 LEFT JOIN pu1.userInfo pui1 " +
+            "LEFT JOIN m.participant2 p2 LEFT JOIN p2.user u2 LEFT JOIN u2.userInfo ui2 " +
+            "LEFT JOIN p2.partner pu2 LEFT JOIN pu2.userInfo pui2 " +
+            "WHERE t.id = :tournamentId " +
+            "ORDER BY m.roundNumber ASC, m.matchNumberInBracket ASC")
+    List<BracketMatchRow> findBracketRows(@Param("tournamentId") Long tournamentId);
     Optional<Match> findByTournamentAndRoundNumberAndMatchNumberInBracket(Tournament tournament, int roundNumber, int matchNumberInBracket);
 
-    @Query("SELECT m FROM Match m WHERE " +
-            "(m.participant1.user.id = :userId OR m.participant2.user.id = :userId " +
-            "OR (m.participant1.partner IS NOT NULL AND m.participant1.partner.id = :userId) " + // Пользователь - партнер в первой регистрации
-            "OR (m.participant2.partner IS NOT NULL AND m.participant2.partner.id = :userId)) " + // Пользователь - партнер во второй регистрации
-            "ORDER BY m.completedTime DESC NULLS LAST, m.scheduledTime DESC NULLS LAST, m.id DESC")
+    // Все запросы "матчи пользователя" идут через match_participants: равенство по user_id и диапазон по индексу
+    // (user_id, completed_time desc, match_id desc) вместо OR по четырем путям participant{1,2}.{user,partner}.
+    @Query(value = "SELECT m FROM MatchParticipant mp JOIN mp.match m WHERE mp.userId = :userId " +
+            "ORDER BY mp.completedTime DESC NULLS LAST, m.scheduledTime DESC NULLS LAST, mp.matchId DESC",
+            countQuery = "SELECT COUNT(mp) FROM MatchParticipant mp WHERE mp.userId = :userId")
     Page<Match> findMatchesByUserId(@Param("userId") Long userId, Pageable pageable);
 
     /**
      * Находит ВСЕ матчи (без пагинации), в которых участвовал пользователь.
-     * Используется для агрегации статистики.
      */
-    @Query("SELECT m FROM Match m WHERE " +
-            "(m.participant1.user.id = :userId OR m.participant2.user.id = :userId " +
-            "OR (m.participant1.partner IS NOT NULL AND m.participant1.partner.id = :userId) " +
-            "OR (m.participant2.partner IS NOT NULL AND m.participant2.partner.id = :userId))")
+    @Query("SELECT m FROM MatchParticipant mp JOIN mp.match m WHERE mp.userId = :userId")
     List<Match> findAllMatchesByUserId(@Param("userId") Long userId);
 
-
     /**
      * Находит все матчи, ВЫИГРАННЫЕ пользователем (как основной игрок или как партнер).
-     * Это ключевой метод, который вызывал ошибку. Убедись, что @Query здесь есть.
      */
-    @Query("SELECT m FROM Match m WHERE m.winner IS NOT NULL AND (" + // Убедимся, что победитель определен
-            "m.winner.user.id = :userId " + // Пользователь - основной игрок в выигравшей регистрации
-            "OR (m.winner.partner IS NOT NULL AND m.winner.partner.id = :userId)" + // Пользователь - партнер в выигравшей регистрации
-            ")")
+    @Query("SELECT m FROM MatchParticipant mp JOIN mp.match m " +
+            "WHERE mp.userId = :userId AND m.winner.id = mp.registrationId")
     List<Match> findWonMatchesByUserId(@Param("userId") Long userId);
-}
\ No newline at end of file
+
+    // Keyset-пагинация истории матчей по (completedTime desc nulls last, id desc) — ровно порядок индекса
+    String USER_MATCHES_FROM = "FROM MatchParticipant mp JOIN mp.match m WHERE mp.userId = :userId ";
+
+    @Query("SELECT m " + USER_MATCHES_FROM + "ORDER BY mp.completedTime DESC NULLS LAST, mp.matchId DESC")
+    List<Match> scrollMatchesByUserId(@Param("userId") Long userId, Pageable limit);
+
+    @Query("SELECT m " + USER_MATCHES_FROM + "AND (mp.completedTime < :completedTime " +
+            "OR (mp.completedTime = :completedTime AND mp.matchId < :id) OR mp.completedTime IS NULL) " +
+            "ORDER BY mp.completedTime DESC NULLS LAST, mp.matchId DESC")
+    List<Match> scrollMatchesByUserIdAfter(@Param("userId") Long userId, @Param("completedTime") LocalDateTime completedTime,
+                                           @Param("id") Long id, Pageable limit);
+
+    // Курсор уже в хвосте незавершенных матчей (completedTime IS NULL)
+    @Query("SELECT m " + USER_MATCHES_FROM + "AND mp.completedTime IS NULL AND mp.matchId < :id ORDER BY mp.matchId DESC")
+    List<Match> scrollIncompleteMatchesByUserIdAfter(@Param("userId") Long userId, @Param("id") Long id, Pageable limit);
+
+    @Query("SELECT COUNT(mp) FROM MatchParticipant mp WHERE mp.userId = :userId")
+    long countMatchesByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,26 @@
+package com.example.tennis.kz.repository;
+
+import com.example.tennis.kz.model.NewsImageUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface NewsImageUploadRepository extends JpaRepository<NewsImageUpload, String> {
+
+    /**
+     * Атомарно забирает выданную загрузку: 1 — ключ выдан этому пользователю и еще действует,
+     * 0 — не выдавался, выдан другому, истек или уже использован.
+     */
+    @Modifying
+    @Query("DELETE FROM NewsImageUpload u WHERE u.imageKey = :key AND u.uploaderId = :uploaderId AND u.expiresAt > :now")
+    int consume(@Param("key") String key, @Param("uploaderId") Long uploaderId, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM NewsImageUpload u WHERE u.expiresAt < :before")
+    int deleteExpired(@Param("before") LocalDateTime before);
+}
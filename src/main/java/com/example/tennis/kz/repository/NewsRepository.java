@@ -1,7 +1,44 @@
 package com.example.tennis.kz.repository;
 
 import com.example.tennis.kz.model.News;
+import com.example.tennis.kz.model.NewsImageStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface NewsRepository extends JpaRepository<News, Long> {
+
+    // Keyset-пагинация по (createdAt desc, id desc): первая страница и страница после курсора
+    @Query("SELECT n FROM News n ORDER BY n.createdAt DESC, n.id DESC")
+    List<News> scrollFirst(Pageable limit);
+
+    @Query("SELECT n FROM News n WHERE (n.createdAt < :createdAt " +
+            "OR (n.createdAt = :createdAt AND n.id < :id)) ORDER BY n.createdAt DESC, n.id DESC")
+    List<News> scrollAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable limit);
+
+    boolean existsByImage(String image);
+
+    // Завершение фоновой загрузки изображения: 0 строк — новость уже удалили, пока шла загрузка
+    @Transactional
+    @Modifying
+    @Query("UPDATE News n SET n.imageStatus = :status WHERE n.id = :id AND n.imageStatus = :expected")
+    int updateImageStatus(@Param("id") Long id, @Param("expected") NewsImageStatus expected,
+                          @Param("status") NewsImageStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE News n SET n.imageVariants = :variants WHERE n.id = :id")
+    int updateImageVariants(@Param("id") Long id, @Param("variants") String variants);
+
+    // Загрузки, оборвавшиеся вместе с процессом, который их вел
+    @Transactional
+    @Modifying
+    @Query("UPDATE News n SET n.imageStatus = :status WHERE n.imageStatus = :expected AND n.createdAt < :before")
+    int updateStaleImageStatus(@Param("expected") NewsImageStatus expected, @Param("status") NewsImageStatus status,
+                               @Param("before") LocalDateTime before);
 }
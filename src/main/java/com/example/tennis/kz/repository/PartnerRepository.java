@@ -8,10 +8,23 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
 
 public interface PartnerRepository extends JpaRepository<Partner, Long> {
     List<Partner> findByEnabled(boolean enabled);
     Page<Partner> findAllBy(Pageable pageable);
 
     Page<Partner> findAllByEnabled(Boolean enabled, Pageable pageable);
+
+    // Keyset-пагинация по (createdAt desc, id desc): первая страница и страница после курсора
+    @Query("SELECT p FROM Partner p WHERE p.enabled = :enabled ORDER BY p.createdAt DESC, p.id DESC")
+    List<Partner> scrollFirst(@Param("enabled") Boolean enabled, Pageable limit);
+
+    @Query("SELECT p FROM Partner p WHERE p.enabled = :enabled AND (p.createdAt < :createdAt " +
+            "OR (p.createdAt = :createdAt AND p.id < :id)) ORDER BY p.createdAt DESC, p.id DESC")
+    List<Partner> scrollAfter(@Param("enabled") Boolean enabled, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable limit);
+
+    long countByEnabled(Boolean enabled);
 }
@@ -0,0 +1,72 @@
+package com.example.tennis.kz.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пакетная запись в журнал очков (points_ledger).
+ * Повторное начисление за ту же (турнир, регистрация, игрок) молча отбрасывается через ON CONFLICT,
+ * а RETURNING отдает только реально вставленные строки — их и нужно прибавить к UserInfo.points.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PointsLedgerJdbcRepository {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO points_ledger (tournament_id, registration_id, user_id, round_reached, points, created_at) VALUES ";
+    private static final String INSERT_SUFFIX =
+            " ON CONFLICT (tournament_id, registration_id, user_id) DO NOTHING RETURNING user_id, points";
+
+    // Турниры с завершенным финалом (матч без следующего), по которым в журнале нет ни одной записи
+    private static final String LEGACY_TOURNAMENTS_SQL = "SELECT DISTINCT m.tournament_id FROM matches m " +
+            "WHERE m.next_match_id IS NULL AND m.status IN ('COMPLETED', 'WALKOVER') " +
+            "AND NOT EXISTS (SELECT 1 FROM points_ledger l WHERE l.tournament_id = m.tournament_id) " +
+            "ORDER BY m.tournament_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record PointsAward(long tournamentId, long registrationId, long userId, int roundReached, int points) {
+    }
+
+    public record AppliedAward(long userId, int points) {
+    }
+
+    /** Вставляет начисления многострочным INSERT и возвращает только новые (не дублирующиеся) записи. */
+    public List<AppliedAward> insertIgnoringDuplicates(List<PointsAward> awards) {
+        List<AppliedAward> applied = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int from = 0; from < awards.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<PointsAward> chunk = awards.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, awards.size()));
+
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+            Object[] args = new Object[chunk.size() * 6];
+            for (int i = 0; i < chunk.size(); i++) {
+                PointsAward award = chunk.get(i);
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+                args[i * 6] = award.tournamentId();
+                args[i * 6 + 1] = award.registrationId();
+                args[i * 6 + 2] = award.userId();
+                args[i * 6 + 3] = award.roundReached();
+                args[i * 6 + 4] = award.points();
+                args[i * 6 + 5] = now;
+            }
+            sql.append(INSERT_SUFFIX);
+
+            applied.addAll(jdbcTemplate.query(sql.toString(),
+                    (rs, rowNum) -> new AppliedAward(rs.getLong("user_id"), rs.getInt("points")), args));
+        }
+        return applied;
+    }
+
+    public List<Long> findFinishedTournamentsWithoutEntries() {
+        return jdbcTemplate.queryForList(LEGACY_TOURNAMENTS_SQL, Long.class);
+    }
+}
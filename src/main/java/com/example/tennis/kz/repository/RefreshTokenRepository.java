@@ -2,13 +2,32 @@ package com.example.tennis.kz.repository;
 
 import com.example.tennis.kz.model.RefreshToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.time.LocalDateTime;
 
 @Repository
 public interface RefreshTokenRepository  extends JpaRepository<RefreshToken, Long> {
-    Optional<RefreshToken> findByRefreshToken(String refreshToken);
-    void deleteByRefreshToken(String refreshToken);
     void deleteById(Long id);
-}
\ No newline at end of file
+
+    /**
+     * Ротация одним условным UPDATE: заменяет хэш, только если текущий токен пользователя совпадает и не истек.
+     * Из двух параллельных запросов с одним токеном строку обновит только один, второй получит 0.
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken rt SET rt.tokenHash = :newHash, rt.expiresAt = :newExpiresAt " +
+            "WHERE rt.user.id = :userId AND rt.tokenHash = :oldHash AND rt.expiresAt > :now")
+    int rotate(@Param("userId") Long userId, @Param("oldHash") String oldHash, @Param("newHash") String newHash,
+               @Param("newExpiresAt") LocalDateTime newExpiresAt, @Param("now") LocalDateTime now);
+
+    // Пачка истекших (и старых строк без срока) за одну короткую транзакцию
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_token WHERE user_id IN (SELECT user_id FROM refresh_token " +
+            "WHERE expires_at < :now OR expires_at IS NULL LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredChunk(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -6,13 +6,36 @@ import com.example.tennis.kz.model.Tournament;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
 
 @Repository
 public interface TournamentRepository extends JpaRepository<Tournament, Long> {
     List<Tournament> findByCategory(Category category);
     Page<Tournament> findAllBy(Pageable pageable);
+
+    // Keyset-пагинация по (createdAt desc, id desc): первая страница и страница после курсора
+    @Query("SELECT t FROM Tournament t ORDER BY t.createdAt DESC, t.id DESC")
+    List<Tournament> scrollFirst(Pageable limit);
+
+    @Query("SELECT t FROM Tournament t WHERE (t.createdAt < :createdAt " +
+            "OR (t.createdAt = :createdAt AND t.id < :id)) ORDER BY t.createdAt DESC, t.id DESC")
+    List<Tournament> scrollAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable limit);
+
+    @Query("SELECT t.bracketVersion FROM Tournament t WHERE t.id = :id")
+    Optional<Long> findBracketVersion(@Param("id") Long id);
+
+    // Выполняется в транзакции изменения сетки: новая версия видна всем узлам ровно вместе с новыми данными
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE tournaments SET bracket_version = bracket_version + 1 WHERE tournament_id = :id", nativeQuery = true)
+    int incrementBracketVersion(@Param("id") Long id);
 }
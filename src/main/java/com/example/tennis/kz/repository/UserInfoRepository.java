@@ -1,12 +1,36 @@
 package com.example.tennis.kz.repository;
 
 import com.example.tennis.kz.model.UserInfo;
+import com.example.tennis.kz.model.response.LeaderboardRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface UserInfoRepository extends JpaRepository<UserInfo, Long> {
     Page<UserInfo> findAllByPointsIsNotNull(Pageable pageable);
+
+    @Query("SELECT new com.example.tennis.kz.model.response.LeaderboardRow(" +
+            "u.id, u.firstName, u.lastName, u.gender, u.city, u.phone, u.rating, u.age, u.points) " +
+            "FROM UserInfo u WHERE u.points IS NOT NULL")
+    List<LeaderboardRow> findLeaderboardRows();
+
+    @Query("SELECT new com.example.tennis.kz.model.response.LeaderboardRow(" +
+            "u.id, u.firstName, u.lastName, u.gender, u.city, u.phone, u.rating, u.age, u.points) " +
+            "FROM UserInfo u WHERE u.points IS NOT NULL AND u.id IN :ids")
+    List<LeaderboardRow> findLeaderboardRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Атомарно прибавляет очки группе игроков одним UPDATE (без чтения сущностей).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserInfo u SET u.points = COALESCE(u.points, 0) + :delta WHERE u.id IN :ids")
+    int addPoints(@Param("delta") Float delta, @Param("ids") Collection<Long> ids);
 }
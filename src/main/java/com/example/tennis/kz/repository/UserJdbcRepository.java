@@ -0,0 +1,27 @@
+package com.example.tennis.kz.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Служебные операции над таблицей users, которые ddl-auto=update не выполняет.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Заполняет created_at у пользователей, созданных до появления поля, и делает колонку NOT NULL.
+     * Таким строкам ставится самая ранняя известная дата регистрации: в ленте они оказываются последними.
+     * Возвращает число заполненных строк.
+     */
+    public int backfillCreatedAt() {
+        int filled = jdbcTemplate.update("UPDATE users SET created_at = " +
+                "COALESCE((SELECT min(created_at) FROM users), now()) WHERE created_at IS NULL");
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN created_at SET NOT NULL");
+        return filled;
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.tennis.kz.repository;
 
 import com.example.tennis.kz.model.User;
+import com.example.tennis.kz.model.response.UserNameRow;
+import com.example.tennis.kz.model.response.UserSearchResultDto;
+import com.example.tennis.kz.model.response.UserStateRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -9,17 +12,47 @@ import org.springframework.stereotype.Repository;
 
 import org.springframework.data.domain.Pageable;
 import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findUserByEmail(String email);
     boolean existsByEmail(String email);
     Page<User> findAllBy(Pageable pageable);
-    @Query("SELECT u FROM User u JOIN u.userInfo ui " +
-            "WHERE LOWER(ui.firstName) LIKE LOWER(CONCAT(:query, '%')) " +
-            "OR LOWER(ui.lastName) LIKE LOWER(CONCAT(:query, '%'))")
-    Page<User> searchByFirstNameOrLastNameStartsWith(
-            @Param("query") String query,
-            Pageable pageable
-    );
-}
\ No newline at end of file
+
+    @Query("SELECT u.id FROM User u ORDER BY u.id")
+    List<Long> findAllIds();
+
+    // Только то, что нужно для авторизации запроса, без EAGER-загрузки UserInfo
+    @Query("SELECT new com.example.tennis.kz.model.response.UserStateRow(u.id, u.role, u.enabled) FROM User u WHERE u.id = :id")
+    Optional<UserStateRow> findUserState(@Param("id") Long id);
+
+    // Карточки результатов поиска сразу в DTO; порядок задает UserSearchService по похожести
+    @Query("SELECT new com.example.tennis.kz.model.response.UserSearchResultDto(u.id, ui.firstName, ui.lastName, ui.rating) " +
+            "FROM User u JOIN u.userInfo ui WHERE u.id IN :ids")
+    List<UserSearchResultDto> findSearchResults(@Param("ids") Collection<Long> ids);
+
+    // Поиск по началу имени или фамилии, когда pg_trgm в базе нет (см. UserSearchService)
+    @Query(value = "SELECT new com.example.tennis.kz.model.response.UserSearchResultDto(u.id, ui.firstName, ui.lastName, ui.rating) " +
+            "FROM User u JOIN u.userInfo ui " +
+            "WHERE LOWER(ui.firstName) LIKE LOWER(CONCAT(:query, '%')) OR LOWER(ui.lastName) LIKE LOWER(CONCAT(:query, '%')) " +
+            "ORDER BY ui.firstName, ui.lastName, u.id",
+            countQuery = "SELECT COUNT(u) FROM User u JOIN u.userInfo ui " +
+                    "WHERE LOWER(ui.firstName) LIKE LOWER(CONCAT(:query, '%')) OR LOWER(ui.lastName) LIKE LOWER(CONCAT(:query, '%'))")
+    Page<UserSearchResultDto> searchByNamePrefix(@Param("query") String query, Pageable pageable);
+
+    // Пачка имен после id для (пере)построения user_search
+    @Query("SELECT new com.example.tennis.kz.model.response.UserNameRow(u.id, ui.firstName, ui.lastName) " +
+            "FROM User u JOIN u.userInfo ui WHERE u.id > :afterId ORDER BY u.id")
+    List<UserNameRow> findNamesAfter(@Param("afterId") Long afterId, Pageable limit);
+
+    // Keyset-пагинация по (createdAt desc, id desc): первая страница и страница после курсора
+    @Query("SELECT u FROM User u ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> scrollFirst(Pageable limit);
+
+    @Query("SELECT u FROM User u WHERE (u.createdAt < :createdAt " +
+            "OR (u.createdAt = :createdAt AND u.id < :id)) ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> scrollAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable limit);
+}
@@ -0,0 +1,119 @@
+package com.example.tennis.kz.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Поиск пользователей по триграммам (pg_trgm) в user_search.
+ * GiST-индекс gist_trgm_ops поддерживает и фильтр <% (word_similarity не ниже порога), и сортировку
+ * по расстоянию <<->, поэтому страница лучших совпадений читается из индекса по порядку, без сборки
+ * и сортировки всех совпадений, как было бы с GIN.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserSearchJdbcRepository {
+
+    private static final String UPSERT_SQL = "INSERT INTO user_search (user_id, search_text) VALUES (?, ?) " +
+            "ON CONFLICT (user_id) DO UPDATE SET search_text = EXCLUDED.search_text";
+
+    // <<-> — это 1 - word_similarity, то есть тот же порядок по убыванию похожести. Сортировка только по
+    // расстоянию: так строки отдает KNN-обход GiST, а любая добавка в ORDER BY (например, user_id для
+    // равных расстояний) превращает запрос в перебор всех совпадений с сортировкой — секунды на коротких
+    // запросах. Равные расстояния идут в порядке обхода индекса; он одинаков для одного и того же запроса,
+    // поэтому OFFSET листает один и тот же поток строк.
+    private static final String SEARCH_SQL = "SELECT user_id FROM user_search WHERE :query <% search_text " +
+            "ORDER BY :query <<-> search_text LIMIT :limit OFFSET :offset";
+
+    // Счет останавливается на :cap строках: короткий запрос typeahead может совпасть с большей частью таблицы
+    private static final String CAPPED_COUNT_SQL = "SELECT COUNT(*) FROM " +
+            "(SELECT 1 FROM user_search WHERE :query <% search_text LIMIT :cap) matched";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /** id найденных пользователей в порядке убывания похожести и число совпадений, не больше maxTotal. */
+    public record SearchPage(List<Long> userIds, long total) {
+    }
+
+    public void upsert(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+        }
+    }
+
+    public int deleteByUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        return namedParameterJdbcTemplate.update("DELETE FROM user_search WHERE user_id IN (:ids)",
+                new MapSqlParameterSource("ids", userIds));
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.update("DELETE FROM user_search");
+    }
+
+    public boolean isEmpty() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM user_search)", Boolean.class));
+    }
+
+    /**
+     * Расширение pg_trgm и GiST-индекс (gist_trgm_ops) по search_text; JPA не умеет описывать классы операторов индекса.
+     * Без прав на CREATE EXTENSION расширение может быть установлено заранее администратором БД,
+     * поэтому ошибка создания не мешает проверке в {@link #isTrigramAvailable()}.
+     */
+    public void ensureIndexes() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось создать расширение pg_trgm: " + e.getMessage());
+        }
+        if (isTrigramAvailable()) {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_user_search_text_gist " +
+                    "ON user_search USING gist (search_text gist_trgm_ops)");
+            // Прежний GIN-индекс не умеет отдавать строки по расстоянию и только замедляет запись
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_user_search_text_trgm");
+        }
+    }
+
+    public boolean isTrigramAvailable() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", Boolean.class));
+    }
+
+    /**
+     * Страница совпадений по убыванию похожести. Порог задается для текущей транзакции через set_config,
+     * чтобы индексный оператор <% отбирал строки сразу по нему.
+     * <p>
+     * Страница читается с одной лишней строкой. Если продолжения нет, общее число известно из самой страницы;
+     * иначе оно считается отдельным запросом, но не дальше maxTotal: короткий запрос typeahead может совпасть
+     * с большей частью таблицы, а точное число сотен тысяч совпадений для пагинации не нужно.
+     */
+    @Transactional(readOnly = true)
+    public SearchPage search(String normalizedQuery, double threshold, int limit, long offset, long maxTotal) {
+        jdbcTemplate.queryForObject("SELECT set_config('pg_trgm.word_similarity_threshold', ?, true)",
+                String.class, String.valueOf(threshold));
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("query", normalizedQuery)
+                .addValue("limit", limit + 1)
+                .addValue("offset", offset)
+                .addValue("cap", maxTotal);
+        List<Long> ids = namedParameterJdbcTemplate.query(SEARCH_SQL, params, (rs, rowNum) -> rs.getLong("user_id"));
+        if (ids.size() <= limit && (!ids.isEmpty() || offset == 0)) {
+            return new SearchPage(ids, offset + ids.size());
+        }
+        List<Long> page = ids.size() > limit ? ids.subList(0, limit) : ids;
+        Long counted = namedParameterJdbcTemplate.queryForObject(CAPPED_COUNT_SQL, params, Long.class);
+        long total = counted != null ? counted : 0;
+        // Дальше предела счета страница все равно должна выглядеть непоследней
+        return new SearchPage(page, page.isEmpty() ? total : Math.max(total, offset + ids.size()));
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.tennis.kz.repository;
+
+import com.example.tennis.kz.model.Category;
+import com.example.tennis.kz.model.TournamentTier;
+import com.example.tennis.kz.model.response.UserStatsRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Запись сводной статистики (user_stats, user_stats_tier_wins) пакетными upsert-ами.
+ * Инкремент прибавляет дельты к существующей строке (или создает ее), замена перезаписывает значения целиком —
+ * ею пользуется пересборка из matches.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserStatsJdbcRepository {
+
+    private static final String UPSERT_PREFIX =
+            "INSERT INTO user_stats (user_id, played, wins, losses, singles_played, singles_wins, doubles_played, doubles_wins, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (user_id) DO UPDATE SET ";
+
+    private static final String INCREMENT_STATS = UPSERT_PREFIX +
+            "played = user_stats.played + EXCLUDED.played, wins = user_stats.wins + EXCLUDED.wins, " +
+            "losses = user_stats.losses + EXCLUDED.losses, " +
+            "singles_played = user_stats.singles_played + EXCLUDED.singles_played, " +
+            "singles_wins = user_stats.singles_wins + EXCLUDED.singles_wins, " +
+            "doubles_played = user_stats.doubles_played + EXCLUDED.doubles_played, " +
+            "doubles_wins = user_stats.doubles_wins + EXCLUDED.doubles_wins, updated_at = EXCLUDED.updated_at";
+
+    private static final String REPLACE_STATS = UPSERT_PREFIX +
+            "played = EXCLUDED.played, wins = EXCLUDED.wins, losses = EXCLUDED.losses, " +
+            "singles_played = EXCLUDED.singles_played, singles_wins = EXCLUDED.singles_wins, " +
+            "doubles_played = EXCLUDED.doubles_played, doubles_wins = EXCLUDED.doubles_wins, updated_at = EXCLUDED.updated_at";
+
+    private static final String INCREMENT_TIER_WINS =
+            "INSERT INTO user_stats_tier_wins (user_id, tier, wins) VALUES (?, ?, ?) " +
+                    "ON CONFLICT (user_id, tier) DO UPDATE SET wins = user_stats_tier_wins.wins + EXCLUDED.wins";
+
+    private static final String INSERT_TIER_WINS = "INSERT INTO user_stats_tier_wins (user_id, tier, wins) VALUES (?, ?, ?)";
+
+    // Участие пользователя идет от его регистраций (сам игрок или партнер), а не перебором всех матчей.
+    // Bye-матч (второй слот пуст) — победа, но не сыгранный матч: так статистика считалась изначально
+    private static final String AGGREGATE_FOR_USERS =
+            "SELECT p.user_id, t.tier, t.category, " +
+                    "SUM(CASE WHEN m.participant1_reg_id IS NOT NULL AND m.participant2_reg_id IS NOT NULL THEN 1 ELSE 0 END) AS played, " +
+                    "SUM(CASE WHEN m.winner_reg_id = p.registration_id THEN 1 ELSE 0 END) AS wins, " +
+                    "SUM(CASE WHEN m.participant1_reg_id IS NOT NULL AND m.participant2_reg_id IS NOT NULL " +
+                    "AND m.winner_reg_id <> p.registration_id THEN 1 ELSE 0 END) AS losses " +
+                    "FROM (SELECT r.id AS registration_id, r.user_id FROM tournament_registrations r WHERE r.user_id IN (:userIds) " +
+                    "      UNION ALL " +
+                    "      SELECT r.id, r.partner_id FROM tournament_registrations r WHERE r.partner_id IN (:userIds)) p " +
+                    "JOIN matches m ON m.participant1_reg_id = p.registration_id OR m.participant2_reg_id = p.registration_id " +
+                    "JOIN tournaments t ON t.tournament_id = m.tournament_id " +
+                    "WHERE m.status IN (:statuses) " +
+                    "GROUP BY p.user_id, t.tier, t.category";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /** Счетчики одного пользователя: либо дельта для инкремента, либо полные значения для замены. */
+    public record StatsValues(long userId, long played, long wins, long losses,
+                              long singlesPlayed, long singlesWins, long doublesPlayed, long doublesWins,
+                              Map<TournamentTier, Long> winsByTier) {
+    }
+
+    /** Прибавляет дельты; строки идут в порядке userId, чтобы параллельные транзакции брали блокировки одинаково. */
+    public void increment(Collection<StatsValues> deltas) {
+        List<StatsValues> sorted = sortedByUser(deltas);
+        jdbcTemplate.batchUpdate(INCREMENT_STATS, statsArgs(sorted));
+        jdbcTemplate.batchUpdate(INCREMENT_TIER_WINS, tierArgs(sorted));
+    }
+
+    /** Перезаписывает статистику пользователей целиком. */
+    public void replace(Collection<StatsValues> values) {
+        List<StatsValues> sorted = sortedByUser(values);
+        jdbcTemplate.batchUpdate(REPLACE_STATS, statsArgs(sorted));
+        jdbcTemplate.batchUpdate("DELETE FROM user_stats_tier_wins WHERE user_id = ?",
+                sorted.stream().map(v -> new Object[]{v.userId()}).toList());
+        jdbcTemplate.batchUpdate(INSERT_TIER_WINS, tierArgs(sorted));
+    }
+
+    /**
+     * Читает сохраненную статистику пользователей, блокируя их строки до конца транзакции:
+     * инкременты от параллельно завершающихся матчей подождут пересборку и лягут поверх нее.
+     */
+    public Map<Long, StatsValues> lockAndLoad(Collection<Long> userIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource("userIds", userIds);
+        Map<Long, Map<TournamentTier, Long>> tierWins = new HashMap<>();
+        namedParameterJdbcTemplate.query(
+                "SELECT user_id, tier, wins FROM user_stats_tier_wins WHERE user_id IN (:userIds)", params, rs -> {
+                    tierWins.computeIfAbsent(rs.getLong("user_id"), id -> new EnumMap<>(TournamentTier.class))
+                            .put(TournamentTier.valueOf(rs.getString("tier")), rs.getLong("wins"));
+                });
+
+        Map<Long, StatsValues> stored = new HashMap<>();
+        namedParameterJdbcTemplate.query(
+                "SELECT * FROM user_stats WHERE user_id IN (:userIds) ORDER BY user_id FOR UPDATE", params, rs -> {
+                    long userId = rs.getLong("user_id");
+                    stored.put(userId, new StatsValues(userId, rs.getLong("played"), rs.getLong("wins"), rs.getLong("losses"),
+                            rs.getLong("singles_played"), rs.getLong("singles_wins"),
+                            rs.getLong("doubles_played"), rs.getLong("doubles_wins"),
+                            tierWins.getOrDefault(userId, Map.of())));
+                });
+        return stored;
+    }
+
+    /** Агрегирует завершенные матчи пачки пользователей в разрезе (уровень, категория). */
+    public List<UserStatsRow> aggregateForUsers(Collection<Long> userIds, Collection<String> finishedStatuses) {
+        MapSqlParameterSource params = new MapSqlParameterSource("userIds", userIds)
+                .addValue("statuses", finishedStatuses);
+        return namedParameterJdbcTemplate.query(AGGREGATE_FOR_USERS, params, (rs, rowNum) -> new UserStatsRow(
+                rs.getLong("user_id"),
+                TournamentTier.valueOf(rs.getString("tier")),
+                Category.valueOf(rs.getString("category")),
+                rs.getLong("played"),
+                rs.getLong("wins"),
+                rs.getLong("losses")));
+    }
+
+    private static List<StatsValues> sortedByUser(Collection<StatsValues> values) {
+        List<StatsValues> sorted = new ArrayList<>(values);
+        sorted.sort(Comparator.comparingLong(StatsValues::userId));
+        return sorted;
+    }
+
+    private static List<Object[]> statsArgs(List<StatsValues> values) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return values.stream().map(v -> new Object[]{v.userId(), v.played(), v.wins(), v.losses(),
+                v.singlesPlayed(), v.singlesWins(), v.doublesPlayed(), v.doublesWins(), now}).toList();
+    }
+
+    private static List<Object[]> tierArgs(List<StatsValues> values) {
+        List<Object[]> args = new ArrayList<>();
+        for (StatsValues v : values) {
+            v.winsByTier().forEach((tier, wins) -> {
+                if (wins != 0) args.add(new Object[]{v.userId(), tier.name(), wins});
+            });
+        }
+        return args;
+    }
+}
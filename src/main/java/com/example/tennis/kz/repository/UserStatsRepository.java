@@ -0,0 +1,9 @@
+package com.example.tennis.kz.repository;
+
+import com.example.tennis.kz.model.UserStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserStatsRepository extends JpaRepository<UserStats, Long> {
+}
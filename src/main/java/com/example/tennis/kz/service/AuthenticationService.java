@@ -1,6 +1,7 @@
 package com.example.tennis.kz.service;
 
 import com.example.tennis.kz.exception.BadRequestException; // Import your custom exception
+import com.example.tennis.kz.model.RefreshToken;
 import com.example.tennis.kz.model.Role;
 import com.example.tennis.kz.model.User;
 import com.example.tennis.kz.model.UserInfo;
@@ -8,6 +9,7 @@ import com.example.tennis.kz.model.request.SignInRequest;
 import com.example.tennis.kz.model.request.SignUpRequest;
 import com.example.tennis.kz.model.response.JwtAuthenticationResponse;
 import com.example.tennis.kz.repository.RefreshTokenRepository;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -121,23 +123,26 @@ public class AuthenticationService {
             throw new BadRequestException("Refresh token не может быть пустым.");
         }
 
-        User user = refreshTokenRepository.findByRefreshToken(refreshToken)
-                .map(rt -> {
-                    // Optional: Check token expiry here if not handled by JwtService on validation
-                    // if (rt.getExpiryDate().isBefore(LocalDateTime.now())) {
-                    // refreshTokenRepository.delete(rt);
-                    // throw new BadRequestException("Refresh token истек.");
-                    // }
-                    return rt.getUser();
-                })
-                .orElseThrow(() -> new BadRequestException("Некорректный или истекший refresh token.")); // Changed from NoSuchElementException
+        // Signature and expiry are checked by the JWT parser; the subject identifies the user
+        User user;
+        try {
+            user = userService.findUserByEmail(jwtService.extractUserName(refreshToken));
+        } catch (JwtException | IllegalArgumentException | NoSuchElementException e) {
+            throw new BadRequestException("Некорректный или истекший refresh token.");
+        }
 
-        // Delete the used refresh token to prevent reuse (common practice for security)
-        refreshTokenRepository.deleteByRefreshToken(refreshToken);
+        // Rotation is one conditional UPDATE on the unique token hash: a reused or concurrently
+        // rotated token matches no row, so each refresh token can be exchanged exactly once
+        RefreshToken next = jwtService.newRefreshToken(user);
+        int rotated = refreshTokenRepository.rotate(user.getId(), TokenHashes.sha256(refreshToken),
+                next.getTokenHash(), next.getExpiresAt(), LocalDateTime.now());
+        if (rotated == 0) {
+            throw new BadRequestException("Некорректный или истекший refresh token.");
+        }
 
         return JwtAuthenticationResponse.builder()
                 .accessToken(jwtService.generateAccessToken(user))
-                .refreshToken(jwtService.generateRefreshToken(user).getRefreshToken()) // Generate a new refresh token
+                .refreshToken(next.getRefreshToken())
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.model.response.MatchDto;
+import com.example.tennis.kz.repository.TournamentRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Кэш отрендеренной сетки турнира: готовые JSON-байты + версия.
+ * <p>
+ * Версия хранится в БД (tournaments.bracket_version) и увеличивается в той же транзакции, что и изменение
+ * сетки, поэтому все экземпляры приложения видят ее одинаково: запись кэша используется, только пока ее версия
+ * совпадает с текущей в БД (чтение версии — один запрос по первичному ключу). ETag строится из id турнира
+ * и версии и совпадает на всех узлах. Записи ограничены по числу и времени жизни, чтобы сетки завершенных
+ * и удаленных турниров не копились в памяти.
+ */
+@Component
+@RequiredArgsConstructor
+public class BracketCache {
+
+    public record CachedBracket(long version, String etag, byte[] json, long builtAt) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final TournamentRepository tournamentRepository;
+
+    @Value("${bracket.cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${bracket.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private final Map<Long, CachedBracket> entries = new ConcurrentHashMap<>();
+
+    public CachedBracket get(Long tournamentId, Supplier<List<MatchDto>> loader) {
+        long version = tournamentRepository.findBracketVersion(tournamentId)
+                .orElseThrow(() -> new NoSuchElementException("Турнир с ID: " + tournamentId + " не найден."));
+        long now = System.currentTimeMillis();
+        CachedBracket cached = entries.get(tournamentId);
+        if (cached != null && cached.version() == version && now - cached.builtAt() < ttlSeconds * 1000) {
+            return cached;
+        }
+
+        // Версия прочитана до данных: если сетка изменится во время сборки, запись сразу окажется устаревшей
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(loader.get());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать сетку турнира " + tournamentId, e);
+        }
+        CachedBracket built = new CachedBracket(version, "\"" + tournamentId + "-" + version + "\"", json, now);
+        entries.merge(tournamentId, built, (old, fresh) -> fresh.version() >= old.version() ? fresh : old);
+        if (entries.size() > maxEntries) {
+            evictOldest();
+        }
+        return built;
+    }
+
+    /** Вызывать в транзакции, изменяющей сетку: версия в БД увеличивается вместе с данными. */
+    public void invalidate(Long tournamentId) {
+        tournamentRepository.incrementBracketVersion(tournamentId);
+        AfterCommit.run(() -> entries.remove(tournamentId));
+    }
+
+    public void evict(Long tournamentId) {
+        AfterCommit.run(() -> entries.remove(tournamentId));
+    }
+
+    // Переполнение случается редко, поэтому достаточно линейного поиска самой старой записи
+    private void evictOldest() {
+        while (entries.size() > maxEntries) {
+            Long oldest = null;
+            long oldestBuiltAt = Long.MAX_VALUE;
+            for (Map.Entry<Long, CachedBracket> entry : entries.entrySet()) {
+                if (entry.getValue().builtAt() < oldestBuiltAt) {
+                    oldestBuiltAt = entry.getValue().builtAt();
+                    oldest = entry.getKey();
+                }
+            }
+            if (oldest == null || entries.remove(oldest) == null) {
+                return;
+            }
+        }
+    }
+}
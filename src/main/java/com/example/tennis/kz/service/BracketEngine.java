@@ -0,0 +1,120 @@
+package com.example.tennis.kz.service;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Чистый (без JPA) движок построения сетки на выбывание.
+ * <p>
+ * Сетка хранится как плоский массив в стиле двоичной кучи: матч {@code i} выводит победителя
+ * в матч {@code i / 2}, индекс 1 — финал, индексы {@code [drawSize / 2, drawSize)} — первый круг.
+ * Позиции посеянных вычисляются по стандартной таблице посева для любой степени двойки,
+ * а "bye" раздаются за один линейный проход по слотам первого круга.
+ */
+public final class BracketEngine {
+
+    /** Пустой слот первого круга (соперник получает "bye"). */
+    public static final int BYE = -1;
+
+    private static final Map<Integer, int[]> SEEDING_TABLES = new ConcurrentHashMap<>();
+
+    private BracketEngine() {
+    }
+
+    /**
+     * Результат жеребьевки: {@code slots[s]} — индекс участника (в отсортированном по рейтингу списке),
+     * стоящего в слоте {@code s} первого круга, либо {@link #BYE}.
+     */
+    public record Draw(int drawSize, int totalRounds, int[] slots) {
+
+        public int matchCount() {
+            return drawSize - 1;
+        }
+
+        /** Первый индекс кучи для раунда {@code round} (1 = первый круг). */
+        public int firstIndexOfRound(int round) {
+            return drawSize >> round;
+        }
+
+        public int matchesInRound(int round) {
+            return drawSize >> round;
+        }
+
+        public int roundOf(int heapIndex) {
+            return totalRounds - (31 - Integer.numberOfLeadingZeros(heapIndex));
+        }
+
+        public int nextMatchIndex(int heapIndex) {
+            return heapIndex >> 1;
+        }
+
+        public int nextMatchSlot(int heapIndex) {
+            return (heapIndex & 1) + 1;
+        }
+
+        /** Участник в слоте 1 или 2 матча первого круга с индексом кучи {@code heapIndex}. */
+        public int firstRoundParticipant(int heapIndex, int slot) {
+            return slots[2 * (heapIndex - drawSize / 2) + slot - 1];
+        }
+    }
+
+    /**
+     * Строит жеребьевку.
+     *
+     * @param drawSize         размер сетки (степень двойки)
+     * @param participantCount число участников, отсортированных по убыванию рейтинга (не больше drawSize)
+     * @param numberOfSeeds    число сеяных; остальные участники перемешиваются случайно
+     */
+    public static Draw draw(int drawSize, int participantCount, int numberOfSeeds, Random random) {
+        if (drawSize < 2 || Integer.bitCount(drawSize) != 1) {
+            throw new IllegalArgumentException("Размер сетки должен быть степенью двойки (>= 2), получено: " + drawSize);
+        }
+        if (participantCount < 0 || participantCount > drawSize) {
+            throw new IllegalArgumentException("Некорректное число участников " + participantCount + " для сетки на " + drawSize);
+        }
+
+        // Ранг -> индекс участника: сеяные сохраняют порядок, несеяные перемешиваются (Фишер-Йетс)
+        int[] byRank = new int[participantCount];
+        for (int i = 0; i < participantCount; i++) {
+            byRank[i] = i;
+        }
+        int seeded = Math.max(0, Math.min(numberOfSeeds, participantCount));
+        for (int i = participantCount - 1; i > seeded; i--) {
+            int j = seeded + random.nextInt(i - seeded + 1);
+            int tmp = byRank[i];
+            byRank[i] = byRank[j];
+            byRank[j] = tmp;
+        }
+
+        // Ранги больше числа участников пустые, поэтому "bye" автоматически достаются лучшим рангам
+        int[] table = SEEDING_TABLES.computeIfAbsent(drawSize, BracketEngine::buildSeedingTable);
+        int[] slots = new int[drawSize];
+        for (int s = 0; s < drawSize; s++) {
+            int rank = table[s];
+            slots[s] = rank <= participantCount ? byRank[rank - 1] : BYE;
+        }
+        return new Draw(drawSize, Integer.numberOfTrailingZeros(drawSize), slots);
+    }
+
+    /**
+     * Стандартная таблица посева: {@code table[s]} — номер посева (с 1), стоящий в слоте {@code s}.
+     * Для 8: [1, 8, 4, 5, 2, 7, 3, 6]. Сеяные 1 и 2 встречаются только в финале, 1-4 — не раньше полуфинала и т.д.
+     */
+    public static int[] seedingTable(int drawSize) {
+        return SEEDING_TABLES.computeIfAbsent(drawSize, BracketEngine::buildSeedingTable).clone();
+    }
+
+    private static int[] buildSeedingTable(int drawSize) {
+        int[] table = {1};
+        for (int size = 2; size <= drawSize; size <<= 1) {
+            int[] next = new int[size];
+            for (int i = 0; i < table.length; i++) {
+                next[2 * i] = table[i];
+                next[2 * i + 1] = size + 1 - table[i];
+            }
+            table = next;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.model.response.BracketDeltaDto;
+import com.example.tennis.kz.repository.TournamentRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SSE-рассылка изменений сетки подписчикам турнира.
+ * <p>
+ * Соединения живут в асинхронном режиме сервлета и не держат поток. У каждого подписчика своя ограниченная
+ * очередь событий, которую разбирает небольшой общий пул: медленный клиент задерживает только себя, а при
+ * переполнении очереди отключается (EventSource переподключится и заново запросит сетку). Периодический
+ * комментарий-пинг не дает прокси закрыть простаивающее соединение и выявляет отвалившихся клиентов.
+ * <p>
+ * Только для одного экземпляра: подписчики хранятся в памяти узла, и дельты, опубликованные на другом
+ * экземпляре, сюда не доходят. При нескольких экземплярах клиенту нужна привязка к узлу (sticky session)
+ * либо общая шина событий между узлами. Отправка блокирует поток пула на время записи в сокет, поэтому
+ * несколько зависших клиентов могут занять все потоки и задержать остальные турниры; размер пула задается
+ * bracket.sse.dispatcher-threads.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BracketEventPublisher {
+
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L; // EventSource на клиенте сам переподключается
+
+    private final ObjectMapper objectMapper;
+    private final TournamentRepository tournamentRepository;
+
+    @Value("${bracket.sse.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${bracket.sse.dispatcher-threads:4}")
+    private int dispatcherThreads;
+
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private ExecutorService dispatcher;
+
+    @PostConstruct
+    void startDispatcher() {
+        dispatcher = Executors.newFixedThreadPool(Math.max(1, dispatcherThreads), runnable -> {
+            Thread thread = new Thread(runnable, "bracket-sse-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe(Long tournamentId) {
+        if (!tournamentRepository.existsById(tournamentId)) {
+            throw new NoSuchElementException("Турнир с ID: " + tournamentId + " не найден.");
+        }
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(tournamentId, emitter, new ArrayBlockingQueue<>(queueCapacity));
+        // Добавление внутри compute: иначе список могли бы удалить как пустой между получением и add
+        subscribers.compute(tournamentId, (id, list) -> {
+            List<Subscriber> target = list != null ? list : new CopyOnWriteArrayList<>();
+            target.add(subscriber);
+            return target;
+        });
+
+        Runnable remove = () -> remove(subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        return emitter;
+    }
+
+    /** Рассылает дельту после коммита текущей транзакции. */
+    public void publish(BracketDeltaDto delta) {
+        AfterCommit.run(() -> broadcast(delta));
+    }
+
+    @Scheduled(fixedDelayString = "${bracket.sse.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        subscribers.values().forEach(list -> list.forEach(subscriber -> enqueue(subscriber, ping)));
+    }
+
+    private void broadcast(BracketDeltaDto delta) {
+        List<Subscriber> list = subscribers.get(delta.getTournamentId());
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            log.warn("Не удалось сериализовать изменение сетки для матча {}: {}", delta.getMatchId(), e.getMessage());
+            return;
+        }
+
+        // Событие собирается один раз и переиспользуется для всех подписчиков
+        Set<ResponseBodyEmitter.DataWithMediaType> event = SseEmitter.event()
+                .name("match")
+                .id(String.valueOf(delta.getMatchId()))
+                .data(json, MediaType.APPLICATION_JSON)
+                .build();
+        list.forEach(subscriber -> enqueue(subscriber, event));
+    }
+
+    private void enqueue(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (!subscriber.queue().offer(event)) {
+            // Клиент не успевает читать: пропуск событий сломал бы сетку, поэтому соединение закрывается
+            remove(subscriber);
+            subscriber.emitter().complete();
+            return;
+        }
+        if (subscriber.draining().compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            while ((event = subscriber.queue().poll()) != null) {
+                try {
+                    subscriber.emitter().send(event);
+                } catch (IOException | IllegalStateException e) {
+                    remove(subscriber);
+                    subscriber.queue().clear();
+                    subscriber.emitter().completeWithError(e);
+                    return;
+                }
+            }
+        } finally {
+            subscriber.draining().set(false);
+        }
+        // Событие могло прийти между последним poll и сбросом флага
+        if (!subscriber.queue().isEmpty() && subscriber.draining().compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.tournamentId(), (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        subscribers.values().forEach(list -> list.forEach(subscriber -> subscriber.emitter().complete()));
+        subscribers.clear();
+    }
+
+    private record Subscriber(Long tournamentId, SseEmitter emitter,
+                              BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue,
+                              AtomicBoolean draining) {
+        Subscriber(Long tournamentId, SseEmitter emitter, BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue) {
+            this(tournamentId, emitter, queue, new AtomicBoolean());
+        }
+    }
+}
@@ -2,17 +2,20 @@ package com.example.tennis.kz.service; // или com.example.tennis.kz.service.i
 
 import com.example.tennis.kz.exception.BadRequestException; // Импортируем наше кастомное исключение
 import com.example.tennis.kz.model.*;
+import com.example.tennis.kz.repository.MatchJdbcRepository;
+import com.example.tennis.kz.repository.MatchParticipantJdbcRepository;
 import com.example.tennis.kz.repository.MatchRepository;
 import com.example.tennis.kz.repository.TournamentRegistrationRepository;
 import com.example.tennis.kz.repository.TournamentRepository;
 // jakarta.persistence.EntityNotFoundException; // Больше не используется напрямую для выбрасывания
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @RequiredArgsConstructor
@@ -21,6 +24,14 @@ public class BracketService {
     private final TournamentRepository tournamentRepository;
     private final TournamentRegistrationRepository tournamentRegistrationRepository;
     private final MatchRepository matchRepository;
+    private final MatchJdbcRepository matchJdbcRepository;
+    private final MatchParticipantJdbcRepository matchParticipantJdbcRepository;
+    private final BracketCache bracketCache;
+    private final UserStatsService userStatsService;
+
+    // true - матчи сетки пишутся одним JDBC batch, false - через matchRepository.saveAll
+    @Value("${bracket.persistence.jdbc-batch:true}")
+    private boolean jdbcBatchInsert;
 
     @Transactional
     public List<Match> generateBracket(Long tournamentId) {
@@ -42,18 +53,43 @@ public class BracketService {
         if (approvedRegistrations.size() != maxParticipants) {
             System.err.println("Внимание: Количество участников (" + approvedRegistrations.size() +
                     ") не совпадает с вместимостью турнира (" + maxParticipants +
-                    "). Текущая реализация без логики 'bye' может привести к неполной или некорректной сетке.");
+                    "). Свободные слоты первого круга будут отданы сеяным как 'bye'.");
             // Если бы это было активным исключением:
             // throw new BadRequestException("Количество участников должно соответствовать вместимости турнира для этой упрощенной генерации сетки.");
         }
 
         List<TournamentRegistration> participants = prepareAndSortParticipants(new ArrayList<>(approvedRegistrations), tournament);
-        tournamentRegistrationRepository.saveAll(participants);
+        if (participants.size() > maxParticipants) {
+            participants = participants.subList(0, maxParticipants);
+        }
 
-        List<Match> allMatchesInBracket = createMatchStructure(tournament);
-        placeParticipants(allMatchesInBracket, participants, tournament);
+        // Вся жеребьевка считается на массивах, сущности собираются один раз уже по готовому дереву
+        BracketEngine.Draw draw = BracketEngine.draw(maxParticipants, participants.size(),
+                tournament.getNumberOfSeeds(), ThreadLocalRandom.current());
+
+        int numberOfSeeds = Math.min(tournament.getNumberOfSeeds(), participants.size());
+        for (int i = 0; i < numberOfSeeds; i++) {
+            participants.get(i).setSeedNumber(i + 1);
+        }
+        tournamentRegistrationRepository.saveAll(participants);
 
-        return matchRepository.saveAll(allMatchesInBracket);
+        List<Match> allMatchesInBracket = buildMatches(tournament, draw, participants);
+        bracketCache.invalidate(tournamentId);
+        // Bye-матчи завершаются сразу при генерации и попадают в статистику как победы
+        userStatsService.recordMatches(allMatchesInBracket.stream()
+                .filter(match -> match.getStatus() == MatchStatus.WALKOVER)
+                .toList());
+        List<Match> saved;
+        if (jdbcBatchInsert) {
+            // Регистрации должны попасть в БД до INSERT матчей, ссылающихся на них
+            tournamentRegistrationRepository.flush();
+            saved = matchJdbcRepository.insertBracket(allMatchesInBracket);
+        } else {
+            saved = matchRepository.saveAll(allMatchesInBracket);
+        }
+        // Участники первого круга и прошедшие по "bye" во второй круг
+        matchParticipantJdbcRepository.insertForMatches(saved);
+        return saved;
     }
 
     private List<TournamentRegistration> prepareAndSortParticipants(List<TournamentRegistration> registrations, Tournament tournament) {
@@ -79,156 +115,100 @@ public class BracketService {
         return registrations;
     }
 
-    private List<Match> createMatchStructure(Tournament tournament) {
-        List<Match> allMatches = new ArrayList<>();
-        int totalRounds = tournament.getTotalRounds();
-        int maxParticipants = tournament.getMaxParticipants();
+    private List<Match> buildMatches(Tournament tournament, BracketEngine.Draw draw, List<TournamentRegistration> participants) {
+        Match[] tree = new Match[draw.drawSize()]; // tree[1] - финал, tree[i] выводит победителя в tree[i / 2]
+        List<Match> allMatches = new ArrayList<>(draw.matchCount());
         int matchNumberInBracketCounter = 1;
 
-        Map<Integer, List<Match>> matchesByRound = new HashMap<>();
-
-        for (int round = 1; round <= totalRounds; round++) {
-            matchesByRound.put(round, new ArrayList<>());
-            int matchesInThisRound = maxParticipants / (int) Math.pow(2, round);
-            for (int i = 0; i < matchesInThisRound; i++) {
+        for (int round = 1; round <= draw.totalRounds(); round++) {
+            int first = draw.firstIndexOfRound(round);
+            for (int i = first; i < first + draw.matchesInRound(round); i++) {
                 Match match = Match.builder()
                         .tournament(tournament)
                         .roundNumber(round)
                         .matchNumberInBracket(matchNumberInBracketCounter++)
                         .status(MatchStatus.PENDING_PARTICIPANTS)
                         .build();
+                if (i > 1) {
+                    match.setNextMatchSlot(draw.nextMatchSlot(i));
+                }
+                tree[i] = match;
                 allMatches.add(match);
-                matchesByRound.get(round).add(match);
             }
         }
-
-        for (int round = 1; round < totalRounds; round++) {
-            List<Match> currentRoundMatches = matchesByRound.get(round);
-            List<Match> nextRoundMatches = matchesByRound.get(round + 1);
-            for (int i = 0; i < currentRoundMatches.size(); i++) {
-                Match currentMatch = currentRoundMatches.get(i);
-                Match nextMatchForWinner = nextRoundMatches.get(i / 2);
-                currentMatch.setNextMatch(nextMatchForWinner);
-                currentMatch.setNextMatchSlot((i % 2) + 1);
-            }
+        // Дети создаются раньше родителя, поэтому ссылки на nextMatch проставляются вторым проходом
+        for (int i = 2; i < tree.length; i++) {
+            tree[i].setNextMatch(tree[draw.nextMatchIndex(i)]);
         }
-        return allMatches;
-    }
 
-    private void placeParticipants(List<Match> allMatches, List<TournamentRegistration> sortedParticipants, Tournament tournament) {
-        int numberOfSeeds = tournament.getNumberOfSeeds();
-
-        List<Match> firstRoundMatches = allMatches.stream()
-                .filter(m -> m.getRoundNumber() == 1)
-                .sorted(Comparator.comparing(Match::getMatchNumberInBracket))
-                .collect(Collectors.toList());
-
-        if (sortedParticipants.size() > tournament.getMaxParticipants()) {
-            sortedParticipants = sortedParticipants.subList(0, tournament.getMaxParticipants());
-        }
+        LocalDateTime now = LocalDateTime.now();
+        // empty[i] - в ветке матча i нет ни одного участника, его слот в следующем матче не заполнится никогда
+        boolean[] empty = new boolean[tree.length];
+        for (int i = draw.firstIndexOfRound(1); i < tree.length; i++) {
+            Match match = tree[i];
+            match.setParticipant1(participantAt(participants, draw.firstRoundParticipant(i, 1)));
+            match.setParticipant2(participantAt(participants, draw.firstRoundParticipant(i, 2)));
 
-        List<TournamentRegistration> seeds = new ArrayList<>();
-        List<TournamentRegistration> others = new ArrayList<>();
-
-        for (int i = 0; i < sortedParticipants.size(); i++) {
-            TournamentRegistration reg = sortedParticipants.get(i);
-            if (i < numberOfSeeds && i < sortedParticipants.size()) {
-                reg.setSeedNumber(i + 1);
-                seeds.add(reg);
+            if (match.getParticipant1() != null && match.getParticipant2() != null) {
+                match.setStatus(MatchStatus.SCHEDULED);
+            } else if (match.getParticipant1() != null || match.getParticipant2() != null) {
+                resolveBye(match, now);
             } else {
-                others.add(reg);
+                empty[i] = true;
+                closeEmpty(match, now);
             }
         }
-        if (!seeds.isEmpty()) {
-            tournamentRegistrationRepository.saveAll(seeds);
-        }
-
-        TournamentRegistration[] slots = new TournamentRegistration[tournament.getMaxParticipants()];
-
-        if (seeds.size() >= 1) slots[0] = seeds.get(0);
-        if (seeds.size() >= 2) slots[tournament.getMaxParticipants() - 1] = seeds.get(1);
-        if (seeds.size() >= 3) {
-            int slot3Index = tournament.getMaxParticipants() / 2;
-            slots[slot3Index] = seeds.get(2);
-        }
-        if (seeds.size() >= 4) {
-            int slot4Index = tournament.getMaxParticipants() / 2 - 1;
-            if(slot4Index == 0 && slots[0] != null && seeds.size() > 1 && slots[0].equals(seeds.get(0))) slot4Index = 1; // Check if S1 is already there
-            slots[slot4Index] = seeds.get(3);
-        }
-
-        List<TournamentRegistration> unplacedParticipants = new ArrayList<>(others);
-        for(TournamentRegistration seed : seeds) {
-            boolean isPlaced = false;
-            for(TournamentRegistration placedSlotUser : slots){
-                if(placedSlotUser != null && placedSlotUser.equals(seed)){
-                    isPlaced = true;
-                    break;
-                }
+        // Когда участников меньше половины сетки, пустые ветки доходят до следующих кругов. Посев раскладывает
+        // участников по разным секциям, поэтому рядом с пустой веткой всегда стоит ветка максимум с одним
+        // участником, и такой матч тоже решается без игры
+        for (int i = draw.firstIndexOfRound(1) - 1; i >= 1; i--) {
+            Match match = tree[i];
+            boolean emptyFirst = empty[2 * i];
+            boolean emptySecond = empty[2 * i + 1];
+            if (emptyFirst && emptySecond) {
+                empty[i] = true;
+                closeEmpty(match, now);
+            } else if ((emptyFirst || emptySecond) && (match.getParticipant1() != null || match.getParticipant2() != null)) {
+                resolveBye(match, now);
             }
-            if(!isPlaced) unplacedParticipants.add(seed);
         }
-        unplacedParticipants.sort(Comparator.comparing(TournamentRegistration::getSeedNumber, Comparator.nullsLast(Comparator.naturalOrder())));
-
-        // Перемешиваем только тех, кто действительно несеяный (seedNumber is null)
-        // или тех сеяных, которые не были размещены по специальным правилам
-        long placedByRuleCount = Arrays.stream(slots).filter(Objects::nonNull).count();
-        long unplacedSeedsCount = unplacedParticipants.stream().filter(p -> p.getSeedNumber() != null).count();
-
-        if (!unplacedParticipants.isEmpty()) {
-            // Сеяные, которые не были размещены по правилам, не должны перемешиваться случайно,
-            // они должны занимать следующие лучшие слоты или быть размещены по более сложным правилам.
-            // Случайное перемешивание здесь применяется только к действительно несеяным.
-            List<TournamentRegistration> trulyUnseeded = unplacedParticipants.stream()
-                    .filter(p -> p.getSeedNumber() == null)
-                    .collect(Collectors.toList());
-            Collections.shuffle(trulyUnseeded);
-
-            // Сборка обратно: сначала "неразмещенные сеяные", потом "перемешанные несеяные"
-            List<TournamentRegistration> finalUnplacedOrder = unplacedParticipants.stream()
-                    .filter(p -> p.getSeedNumber() != null)
-                    .collect(Collectors.toList());
-            finalUnplacedOrder.addAll(trulyUnseeded);
-            unplacedParticipants = finalUnplacedOrder;
-        }
-
+        return allMatches;
+    }
 
-        int unplacedIdx = 0;
-        for (int i = 0; i < slots.length; i++) {
-            if (slots[i] == null && unplacedIdx < unplacedParticipants.size()) {
-                slots[i] = unplacedParticipants.get(unplacedIdx++);
-            }
-        }
+    // Единственный участник матча проходит дальше по "bye"
+    private void resolveBye(Match match, LocalDateTime now) {
+        TournamentRegistration byeWinner = match.getParticipant1() != null ? match.getParticipant1() : match.getParticipant2();
+        match.setWinner(byeWinner);
+        match.setScore("BYE"); // Можно использовать константу
+        match.setStatus(MatchStatus.WALKOVER);
+        match.setCompletedTime(now);
+        advanceByeWinner(match, byeWinner);
+    }
 
-        int currentSlotIndex = 0;
-        for (Match match : firstRoundMatches) {
-            if (currentSlotIndex < slots.length) {
-                assignParticipantToMatch(match, slots[currentSlotIndex++], 1);
-            }
-            if (currentSlotIndex < slots.length) {
-                assignParticipantToMatch(match, slots[currentSlotIndex++], 2);
-            }
+    // Матч между двумя пустыми слотами закрывается без победителя, иначе он навсегда остался бы в ожидании
+    private void closeEmpty(Match match, LocalDateTime now) {
+        match.setScore("BYE");
+        match.setStatus(MatchStatus.WALKOVER);
+        match.setCompletedTime(now);
+    }
 
-            if (match.getParticipant1() != null && match.getParticipant2() != null) {
-                match.setStatus(MatchStatus.SCHEDULED);
-            } else if (match.getParticipant1() != null || match.getParticipant2() != null) {
-                TournamentRegistration byeWinner = match.getParticipant1() != null ? match.getParticipant1() : match.getParticipant2();
-                match.setWinner(byeWinner);
-                match.setScore("BYE"); // Можно использовать константу
-                match.setStatus(MatchStatus.WALKOVER);
-                match.setCompletedTime(LocalDateTime.now());
-            }
-        }
+    private TournamentRegistration participantAt(List<TournamentRegistration> participants, int index) {
+        return index == BracketEngine.BYE ? null : participants.get(index);
     }
 
-    private void assignParticipantToMatch(Match match, TournamentRegistration registration, int slot) {
-        if (registration == null) {
+    // Победитель по "bye" сразу занимает свой слот во втором круге, как это сделал бы MatchService.advanceWinner
+    private void advanceByeWinner(Match byeMatch, TournamentRegistration winner) {
+        Match nextMatch = byeMatch.getNextMatch();
+        if (nextMatch == null) {
             return;
         }
-        if (slot == 1) {
-            match.setParticipant1(registration);
+        if (byeMatch.getNextMatchSlot() == 1) {
+            nextMatch.setParticipant1(winner);
         } else {
-            match.setParticipant2(registration);
+            nextMatch.setParticipant2(winner);
+        }
+        if (nextMatch.getParticipant1() != null && nextMatch.getParticipant2() != null) {
+            nextMatch.setStatus(MatchStatus.SCHEDULED);
         }
     }
-}
\ No newline at end of file
+}
@@ -6,11 +6,15 @@ import com.example.tennis.kz.model.Coach;
 import com.example.tennis.kz.model.Language;
 import com.example.tennis.kz.model.User;
 import com.example.tennis.kz.model.request.CoachRequest;
+import com.example.tennis.kz.model.response.CursorPageResponse;
+import com.example.tennis.kz.model.response.PageCursor;
 import com.example.tennis.kz.repository.CoachRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable; // Pageable был без PageRequest, но он используется для типа параметра
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 // import java.time.LocalDateTime; // Не используется в этом классе
 import java.util.List;
@@ -48,6 +52,20 @@ public class CoachService {
         return coachRepository.findAllByEnabled(pageable, enabled);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageResponse<Coach> scrollCoaches(String cursor, int size, boolean withTotal, Boolean enabled) {
+        if (enabled == null) {
+            throw new BadRequestException("Параметр enabled обязателен.");
+        }
+        Pageable limit = PageRequest.of(0, CursorPageResponse.fetchSize(size));
+        PageCursor after = PageCursor.decode(cursor);
+        List<Coach> rows = after == null
+                ? coachRepository.scrollFirst(enabled, limit)
+                : coachRepository.scrollAfter(enabled, after.keyAsDateTime(), after.id(), limit);
+        Long total = withTotal ? coachRepository.countByEnabled(enabled) : null;
+        return CursorPageResponse.of(rows, size, row -> PageCursor.encode(row.getCreatedAt(), row.getId()), row -> row, total);
+    }
+
     public Coach enableCoach(Long id){
         Coach coach = getCoachById(id); // getCoachById уже выбрасывает исключения, если нужно
         coach.setEnabled(true);
@@ -3,7 +3,6 @@ import com.example.tennis.kz.model.ConfirmationToken;
 import com.example.tennis.kz.model.User;
 import com.example.tennis.kz.repository.ConfirmationTokenRepository;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.SimpleMailMessage;
 import org.springframework.stereotype.Service;
 
 import java.sql.Date;
@@ -12,11 +11,11 @@ import java.util.UUID;
 @Service
 public class ConfirmationTokenService {
     private final ConfirmationTokenRepository confirmationTokenRepository;
-    private final EmailService emailService;
+    private final EmailOutboxDispatcher emailOutbox;
 
-    public ConfirmationTokenService(ConfirmationTokenRepository confirmationTokenRepository, EmailService emailService) {
+    public ConfirmationTokenService(ConfirmationTokenRepository confirmationTokenRepository, EmailOutboxDispatcher emailOutbox) {
         this.confirmationTokenRepository = confirmationTokenRepository;
-        this.emailService = emailService;
+        this.emailOutbox = emailOutbox;
     }
 
     public ConfirmationToken saveConfirmationToken(User user) {
@@ -31,12 +30,9 @@ public class ConfirmationTokenService {
 
     public ResponseEntity<?> sendConfirmationToken(User user) {
         ConfirmationToken confirmationToken = saveConfirmationToken(user);
-        SimpleMailMessage mailMessage = new SimpleMailMessage();
-        mailMessage.setTo(user.getEmail());
-        mailMessage.setSubject("Complete Registration!");
-        mailMessage.setText("To confirm your account, please click here : "
+        // Письмо пишется в outbox в той же транзакции, что пользователь и токен; отправит диспетчер
+        emailOutbox.enqueue(user.getEmail(), "Complete Registration!", "To confirm your account, please click here : "
                 + "https://tennis-p30s.onrender.com/api/v1/user/confirmemail?token=" + confirmationToken.getConfirmationToken());
-        emailService.sendEmail(mailMessage);
         return ResponseEntity.ok("confirmation token sent");
     }
 
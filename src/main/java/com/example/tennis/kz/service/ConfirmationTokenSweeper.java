@@ -0,0 +1,79 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.repository.ConfirmationTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Периодическая очистка истекших токенов подтверждения email.
+ * <p>
+ * Работает пачками: в память попадают только id одной пачки, удаление — set-based DELETE по этим id,
+ * каждая пачка в своей транзакции. Пользователи не удаляются: регистрация сразу создает включенную учетную
+ * запись, и признака "email так и не подтвержден" в схеме нет.
+ * Метрики: confirmation_tokens.purged и время прохода confirmation_tokens.purge.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConfirmationTokenSweeper {
+
+    private final ConfirmationTokenRepository confirmationTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${security.confirmation-token.sweep-chunk-size:500}")
+    private int chunkSize;
+
+    private Counter tokensPurged;
+    private Timer sweepTimer;
+
+    private record ChunkResult(int scanned, int tokens) {
+    }
+
+    @PostConstruct
+    void registerMeters() {
+        tokensPurged = Counter.builder("confirmation_tokens.purged")
+                .description("Удаленные истекшие токены подтверждения").register(meterRegistry);
+        sweepTimer = Timer.builder("confirmation_tokens.purge")
+                .description("Длительность прохода очистки токенов подтверждения").register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${security.confirmation-token.sweep-initial-delay-ms:120000}",
+            fixedDelayString = "${security.confirmation-token.sweep-interval-ms:3600000}")
+    public void sweepExpired() {
+        sweepTimer.record(() -> {
+            Date now = new Date();
+            int size = Math.max(1, chunkSize);
+            int tokens = 0;
+            ChunkResult chunk;
+            do {
+                chunk = transactionTemplate.execute(status -> purgeChunk(now, size));
+                tokens += chunk.tokens();
+            } while (chunk.scanned() == size);
+
+            if (tokens > 0) {
+                System.out.println("Очистка токенов подтверждения: удалено токенов " + tokens);
+            }
+        });
+    }
+
+    private ChunkResult purgeChunk(Date now, int size) {
+        List<Long> ids = confirmationTokenRepository.findExpiredIds(now, PageRequest.of(0, size));
+        if (ids.isEmpty()) {
+            return new ChunkResult(0, 0);
+        }
+        int tokens = confirmationTokenRepository.deleteAllByIdIn(ids);
+        tokensPurged.increment(tokens);
+        return new ChunkResult(ids.size(), tokens);
+    }
+}
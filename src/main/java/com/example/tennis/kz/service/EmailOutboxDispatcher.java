@@ -0,0 +1,204 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.model.EmailOutbox;
+import com.example.tennis.kz.repository.EmailOutboxJdbcRepository;
+import com.example.tennis.kz.repository.EmailOutboxJdbcRepository.OutboxMail;
+import com.example.tennis.kz.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbox исходящей почты: запись письма в транзакции вызывающего и фоновая доставка.
+ * <p>
+ * Каждый проход запускает workers воркеров. Воркер короткой транзакцией захватывает пачку (аренда locked_until),
+ * вне транзакции отправляет ее одной SMTP-сессией (EmailService.deliver) и второй короткой транзакцией помечает
+ * строки отправленными или откладывает с экспоненциальной задержкой от минут до часов. Соединение с БД
+ * на время SMTP не удерживается. После max-attempts попыток письмо получает статус FAILED; такие письма
+ * можно вернуть в очередь (reviveFailed), например после устранения проблемы с SMTP.
+ * <p>
+ * Очередь — сама таблица outbox: в памяти одновременно не больше workers * batch-size писем.
+ * Метрики: mail.outbox.pending (ожидают отправки, обновляется каждый проход), mail.sent, mail.retried
+ * (отложены до следующей попытки) и mail.failed (попытки исчерпаны).
+ */
+@Service
+@RequiredArgsConstructor
+public class EmailOutboxDispatcher {
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailOutboxJdbcRepository emailOutboxJdbcRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mail.outbox.workers:2}")
+    private int workers;
+
+    @Value("${mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${mail.outbox.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${mail.outbox.max-attempts:12}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.retry.initial-backoff-minutes:1}")
+    private long initialBackoffMinutes;
+
+    @Value("${mail.outbox.retry.max-backoff-minutes:360}")
+    private long maxBackoffMinutes;
+
+    @Value("${mail.outbox.lease-seconds:900}")
+    private long leaseSeconds;
+
+    private final AtomicLong pending = new AtomicLong();
+    private Counter sent;
+    private Counter retried;
+    private Counter failed;
+
+    private final ExecutorService pool = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "mail-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    void registerMeters() {
+        meterRegistry.gauge("mail.outbox.pending", pending);
+        sent = meterRegistry.counter("mail.sent");
+        retried = meterRegistry.counter("mail.retried");
+        failed = meterRegistry.counter("mail.failed");
+    }
+
+    /** Ставит письмо в outbox в текущей транзакции; отправка — после коммита, фоновым диспетчером. */
+    public void enqueue(String recipient, String subject, String body) {
+        LocalDateTime now = LocalDateTime.now();
+        emailOutboxRepository.save(EmailOutbox.builder()
+                .recipient(recipient)
+                .subject(subject)
+                .body(body)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+    }
+
+    @Scheduled(initialDelayString = "${mail.outbox.initial-delay-ms:10000}",
+            fixedDelayString = "${mail.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        List<Callable<Integer>> tasks = Collections.nCopies(Math.max(1, workers), this::drain);
+        try {
+            pool.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending.set(emailOutboxJdbcRepository.countPending());
+    }
+
+    // Воркер забирает пачки, пока есть готовые письма
+    private int drain() {
+        int size = Math.max(1, batchSize);
+        int total = 0;
+        int claimed;
+        do {
+            claimed = sendBatch(size);
+            total += claimed;
+        } while (claimed == size && !Thread.currentThread().isInterrupted());
+        return total;
+    }
+
+    private int sendBatch(int size) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxMail> batch = transactionTemplate.execute(status ->
+                emailOutboxJdbcRepository.claimBatch(now, now.plusSeconds(leaseSeconds), size));
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        List<SimpleMailMessage> messages = new ArrayList<>(batch.size());
+        for (OutboxMail mail : batch) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(mail.recipient());
+            message.setSubject(mail.subject());
+            message.setText(mail.body());
+            messages.add(message);
+        }
+
+        Set<Integer> undelivered = new HashSet<>(emailService.deliver(messages));
+        LocalDateTime finished = LocalDateTime.now();
+        int gaveUp = transactionTemplate.execute(status -> {
+            List<Long> sentIds = new ArrayList<>(batch.size());
+            int exhausted = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                OutboxMail mail = batch.get(i);
+                if (!undelivered.contains(i)) {
+                    sentIds.add(mail.id());
+                    continue;
+                }
+                int attempt = mail.attempts() + 1;
+                boolean giveUp = attempt >= maxAttempts;
+                emailOutboxJdbcRepository.markFailed(mail.id(), giveUp,
+                        finished.plusMinutes(backoffMinutes(attempt)), "SMTP: попытка " + attempt + " не удалась");
+                if (giveUp) {
+                    exhausted++;
+                    System.err.println("Письмо outbox " + mail.id() + " для " + mail.recipient() + " не отправлено после " + attempt + " попыток.");
+                }
+            }
+            if (!sentIds.isEmpty()) {
+                emailOutboxJdbcRepository.markSent(sentIds, finished);
+            }
+            return exhausted;
+        });
+        // Счетчики — после коммита, чтобы не учитывать пометки откаченной транзакции
+        sent.increment(batch.size() - undelivered.size());
+        retried.increment(undelivered.size() - gaveUp);
+        failed.increment(gaveUp);
+        return batch.size();
+    }
+
+    /** Задержка перед попыткой attempt + 1: удваивается от initial-backoff до max-backoff. */
+    long backoffMinutes(int attempt) {
+        long backoff = initialBackoffMinutes << Math.min(Math.max(attempt - 1, 0), 20);
+        return Math.min(backoff, maxBackoffMinutes);
+    }
+
+    /** Возвращает в очередь письма, не отправленные после всех попыток и созданные за последние days дней. */
+    public int reviveFailed(int days) {
+        LocalDateTime now = LocalDateTime.now();
+        int revived = emailOutboxJdbcRepository.reviveFailed(now.minusDays(days), now);
+        System.out.println("Возвращено в очередь писем outbox: " + revived);
+        return revived;
+    }
+
+    @Scheduled(initialDelayString = "${mail.outbox.cleanup-initial-delay-ms:300000}",
+            fixedDelayString = "${mail.outbox.cleanup-interval-ms:3600000}")
+    public void deleteOldSent() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int deleted;
+        do {
+            deleted = emailOutboxJdbcRepository.deleteSentBefore(before, 1000);
+        } while (deleted == 1000);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -1,23 +1,146 @@
 package com.example.tennis.kz.service;
 
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Service;
 
+import java.util.*;
+
+/**
+ * Отправка писем по SMTP. Письма приложения идут через outbox (EmailOutboxDispatcher), который передает
+ * сюда пачки: deliver отправляет пачку одной SMTP-сессией и сообщает, какие письма не ушли. Метрики почты
+ * ведет диспетчер.
+ * Хост и порт берутся из spring.mail.*, поэтому для проверки достаточно направить их на локальный
+ * SMTP-стенд (например, GreenMail).
+ */
 @Service
-@EnableAsync
+@RequiredArgsConstructor
 public class EmailService {
 
-    private JavaMailSender javaMailSender;
+    private final JavaMailSender javaMailSender;
+
+    /**
+     * Синхронно отправляет пачку одной SMTP-сессией и возвращает индексы неотправленных писем
+     * (пустой список — ушли все).
+     */
+    public List<Integer> deliver(List<SimpleMailMessage> messages) {
+        if (messages.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> failedIndexes;
+        try {
+            javaMailSender.send(messages.toArray(new SimpleMailMessage[0]));
+            failedIndexes = List.of();
+        } catch (MailSendException e) {
+            // Пустой failedMessages - сбой соединения или авторизации, не ушло ни одно письмо
+            failedIndexes = e.getFailedMessages().isEmpty()
+                    ? allIndexes(messages.size())
+                    : failedOf(messages, e.getFailedMessages().keySet());
+            System.err.println("Не отправлено писем: " + failedIndexes.size() + " из " + messages.size() + ": " + e.getMessage());
+        } catch (MailException e) {
+            failedIndexes = allIndexes(messages.size());
+            System.err.println("Сбой отправки пачки писем: " + e.getMessage());
+        }
+        return failedIndexes;
+    }
+
+    /**
+     * Сопоставляет неотправленные сообщения с письмами пачки: сначала по получателям и теме, затем только
+     * по получателям. Письма, получателей которых нет среди неотправленных, повторно не отправляются:
+     * они, скорее всего, уже доставлены. Если же хотя бы одно неотправленное сообщение не удалось сопоставить,
+     * неизвестно, какое письмо не ушло, и повторяется вся пачка: дубль лучше потерянного письма.
+     */
+    private static List<Integer> failedOf(List<SimpleMailMessage> messages, Set<Object> failedMessages) {
+        Set<Integer> matched = new TreeSet<>();
+        boolean unmatched = false;
+        for (Object failedMessage : failedMessages) {
+            if (failedMessage instanceof SimpleMailMessage simpleMessage) {
+                int index = indexOfSame(messages, simpleMessage, matched);
+                if (index >= 0) {
+                    matched.add(index);
+                } else {
+                    unmatched = true;
+                }
+                continue;
+            }
+            if (!(failedMessage instanceof MimeMessage mimeMessage)) {
+                unmatched = true;
+                continue;
+            }
+            int index = -1;
+            for (int i = 0; i < messages.size() && index < 0; i++) {
+                if (!matched.contains(i) && sameMail(messages.get(i), mimeMessage)) {
+                    index = i;
+                }
+            }
+            if (index >= 0) {
+                matched.add(index);
+            } else if (!matchRecipients(messages, recipients(mimeMessage), matched)) {
+                unmatched = true;
+            }
+        }
+        if (unmatched) {
+            System.err.println("Неотправленные письма не сопоставлены с пачкой, повторяется вся пачка.");
+            return allIndexes(messages.size());
+        }
+        return new ArrayList<>(matched);
+    }
+
+    // Отмечает письма пачки, адресованные кому-то из recipients; false - таких писем нет
+    private static boolean matchRecipients(List<SimpleMailMessage> messages, Set<String> recipients, Set<Integer> matched) {
+        boolean found = false;
+        for (int i = 0; i < messages.size(); i++) {
+            String[] to = messages.get(i).getTo();
+            if (to != null && Arrays.stream(to).anyMatch(recipients::contains)) {
+                matched.add(i);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    private static int indexOfSame(List<SimpleMailMessage> messages, SimpleMailMessage message, Set<Integer> matched) {
+        for (int i = 0; i < messages.size(); i++) {
+            if (!matched.contains(i) && messages.get(i) == message) return i;
+        }
+        return -1;
+    }
 
-    public EmailService(JavaMailSender javaMailSender) {
-        this.javaMailSender = javaMailSender;
+    private static Set<String> recipients(MimeMessage mimeMessage) {
+        Set<String> recipients = new HashSet<>();
+        try {
+            Address[] addresses = mimeMessage.getAllRecipients();
+            if (addresses != null) {
+                for (Address address : addresses) {
+                    recipients.add(address instanceof InternetAddress internet ? internet.getAddress() : address.toString());
+                }
+            }
+        } catch (MessagingException e) {
+            // Получатели не читаются — такое сообщение ни с чем не сопоставляется
+        }
+        return recipients;
     }
 
-    @Async
-    public void sendEmail(SimpleMailMessage email) {
-        javaMailSender.send(email);
+    private static List<Integer> allIndexes(int size) {
+        List<Integer> indexes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) indexes.add(i);
+        return indexes;
     }
-}
\ No newline at end of file
+
+    private static boolean sameMail(SimpleMailMessage message, MimeMessage mimeMessage) {
+        try {
+            return Objects.equals(message.getSubject(), mimeMessage.getSubject())
+                    && message.getTo() != null && recipients(mimeMessage).containsAll(Arrays.asList(message.getTo()));
+        } catch (MessagingException e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.model.*;
+import com.example.tennis.kz.model.CoachService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Единый справочник всех перечислений для стартового экрана клиента.
+ * <p>
+ * Справочник не меняется до перезапуска, поэтому собирается один раз при старте: JSON сериализуется
+ * в байты и сразу же сжимается gzip. Версия — префикс SHA-256 от JSON, она же служит сильным ETag,
+ * так что клиент перезапрашивает справочник только после деплоя, который его изменил.
+ */
+@Service
+@RequiredArgsConstructor
+public class EnumDictionaryService {
+
+    private final ObjectMapper objectMapper;
+    private final TournamentPointsTable tournamentPointsTable;
+
+    @Getter
+    private String version;
+    @Getter
+    private byte[] json;
+    @Getter
+    private byte[] gzipped;
+
+    /** Описание уровня турнира вместе с таблицей очков (индекс — достигнутый раунд, последний — победитель). */
+    public record TierInfo(String name, int totalPoints, int maxParticipants, int numberOfSeeds, int[] pointsTable) {
+    }
+
+    @PostConstruct
+    void build() throws JsonProcessingException {
+        List<TierInfo> tiers = new ArrayList<>();
+        for (TournamentTier tier : TournamentTier.values()) {
+            tiers.add(new TierInfo(tier.name(), tier.getTotalPoints(), tier.getMaxParticipants(),
+                    tier.getNumberOfSeeds(), tournamentPointsTable.getPointsTable(tier)));
+        }
+
+        // Ключи и содержимое совпадают с отдельными эндпоинтами EnumController, tier дополнен параметрами уровня
+        Map<String, Object> dictionary = new LinkedHashMap<>();
+        dictionary.put("city", City.values());
+        dictionary.put("roles", Role.values());
+        dictionary.put("category", Category.values());
+        dictionary.put("language", Language.values());
+        dictionary.put("gender", Gender.values());
+        dictionary.put("service", CoachService.GET_ALL_SERVICES);
+        dictionary.put("tier", tiers);
+
+        json = objectMapper.writeValueAsBytes(dictionary);
+        gzipped = gzip(json);
+        version = TokenHashes.sha256(new String(json, StandardCharsets.UTF_8)).substring(0, 16);
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -1,81 +1,178 @@
 package com.example.tennis.kz.service;
 
 import com.example.tennis.kz.model.RefreshToken;
+import com.example.tennis.kz.model.User;
 import com.example.tennis.kz.repository.RefreshTokenRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 
 import java.security.Key;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Выпуск и проверка JWT.
+ * <p>
+ * Ключ подписи и парсер строятся один раз при старте. Проверенные claims кэшируются по SHA-256 токена
+ * до момента exp, поэтому повторные запросы с тем же access-токеном не разбирают и не проверяют подпись заново;
+ * истекшая запись удаляется, и токен уходит в парсер, который отклонит его. Кэш — ConcurrentHashMap без общей
+ * блокировки на чтение; при переполнении один поток вычищает истекшие записи, а если их не хватило —
+ * часть записей с ближайшим exp.
+ */
 @Service
 @RequiredArgsConstructor
 public class JwtService {
     @Value("${token.signing.key}")
     private String jwtSigningKey;
 
+    @Value("${token.claims-cache.max-size:10000}")
+    private int claimsCacheMaxSize;
+
     private final RefreshTokenRepository refreshTokenRepository;
     private final UserService userService;
 
+    private Key signingKey;
+    private JwtParser parser;
+    private final Map<String, VerifiedClaims> claimsCache = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+
+    private record VerifiedClaims(Claims claims, long expiresAtMillis) {
+    }
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSigningKey));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build(); // Потокобезопасен
+        claimsCacheMaxSize = Math.max(1, claimsCacheMaxSize);
+    }
+
     public String extractUserName(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return parseClaims(token).getSubject();
+    }
+
+    /**
+     * Проверяет подпись и срок токена и возвращает его claims; результат берется из кэша, пока токен не истек.
+     * Бросает исключения jjwt (ExpiredJwtException, SignatureException и т.д.) для невалидных токенов.
+     */
+    public Claims parseClaims(String token) {
+        String key = TokenHashes.sha256(token);
+        long now = System.currentTimeMillis();
+        VerifiedClaims cached = claimsCache.get(key);
+        if (cached != null) {
+            if (cached.expiresAtMillis() > now) {
+                return cached.claims();
+            }
+            claimsCache.remove(key, cached);
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) { // Токены без exp не кэшируем
+            claimsCache.put(key, new VerifiedClaims(claims, claims.getExpiration().getTime()));
+            if (claimsCache.size() > claimsCacheMaxSize) {
+                shrinkClaimsCache(now);
+            }
+        }
+        return claims;
+    }
+
+    // Пока один поток чистит кэш, остальные не ждут: кратковременное превышение лимита допустимо
+    private void shrinkClaimsCache(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            claimsCache.values().removeIf(verified -> verified.expiresAtMillis() <= now);
+            int excess = claimsCache.size() - claimsCacheMaxSize;
+            if (excess <= 0) {
+                return;
+            }
+            // Живых записей больше лимита: убираем ближайшие к истечению с запасом в 10%, чтобы не сортировать на каждой вставке
+            int toRemove = excess + claimsCacheMaxSize / 10;
+            List<Map.Entry<String, VerifiedClaims>> entries = new ArrayList<>(claimsCache.entrySet());
+            entries.sort(Comparator.comparingLong(entry -> entry.getValue().expiresAtMillis()));
+            for (int i = 0; i < Math.min(toRemove, entries.size()); i++) {
+                claimsCache.remove(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        } finally {
+            sweeping.set(false);
+        }
     }
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_ENABLED = "enabled";
+
+    private static final int REFRESH_TOKEN_LIFETIME_MS = 1000 * 60 * 60 * 24 * 14;
+
     public String generateAccessToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails, 10000 * 60 * 10);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user) {
+            // Подписанные claims позволяют фильтру собрать principal без загрузки пользователя
+            claims.put(CLAIM_USER_ID, user.getId());
+            claims.put(CLAIM_ROLE, user.getRole() != null ? user.getRole().name() : null);
+            claims.put(CLAIM_ENABLED, user.isEnabled());
+        }
+        return generateToken(claims, userDetails, 10000 * 60 * 10);
     }
 
     public RefreshToken generateRefreshToken(UserDetails userDetails) {
-        RefreshToken refreshToken = RefreshToken.builder()
-                .user(userService.findUserByEmail(userDetails.getUsername()))
-                .refreshToken(generateToken(new HashMap<>(), userDetails, 1000 * 60 * 60 * 24 * 14)).build();
+        RefreshToken refreshToken = newRefreshToken(userService.findUserByEmail(userDetails.getUsername()));
         refreshTokenRepository.save(refreshToken);
         return refreshToken;
     }
 
+    /** Выпускает refresh-токен без сохранения: в сущности хэш и срок, сырой токен — в transient-поле. */
+    public RefreshToken newRefreshToken(User user) {
+        // jti делает токен уникальным, даже если два выпуска попали в одну секунду (iat/exp в секундах)
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(Claims.ID, UUID.randomUUID().toString());
+        String token = generateToken(claims, user, REFRESH_TOKEN_LIFETIME_MS);
+        return RefreshToken.builder()
+                .user(user)
+                .tokenHash(TokenHashes.sha256(token))
+                .expiresAt(LocalDateTime.now().plus(REFRESH_TOKEN_LIFETIME_MS, ChronoUnit.MILLIS))
+                .refreshToken(token)
+                .build();
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String userName = extractUserName(token);
-        return (userName.equals(userDetails.getUsername())) && !isTokenExpired(token) && userDetails.isEnabled();
+        return isTokenValid(parseClaims(token), userDetails);
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolvers) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolvers.apply(claims);
+    // Для уже разобранного токена: без повторного парсинга и проверки подписи
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String userName = claims.getSubject();
+        return userName != null && userName.equals(userDetails.getUsername())
+                && !isTokenExpired(claims) && userDetails.isEnabled();
     }
 
     private String generateToken(Map<String, Object> extraClaims, UserDetails userDetails, int lifeTimeInMs) {
         return Jwts.builder().setClaims(extraClaims).setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + lifeTimeInMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256).compact();
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token)
-                .getBody();
+                .signWith(signingKey, SignatureAlgorithm.HS256).compact();
     }
 
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSigningKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().before(new Date());
     }
-}
\ No newline at end of file
+}
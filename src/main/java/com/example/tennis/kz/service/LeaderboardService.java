@@ -0,0 +1,308 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.exception.BadRequestException;
+import com.example.tennis.kz.model.City;
+import com.example.tennis.kz.model.Gender;
+import com.example.tennis.kz.model.response.CursorPageResponse;
+import com.example.tennis.kz.model.response.CustomPageResponse;
+import com.example.tennis.kz.model.response.LeaderboardEntryDto;
+import com.example.tennis.kz.model.response.LeaderboardRow;
+import com.example.tennis.kz.model.response.PageCursor;
+import com.example.tennis.kz.repository.UserInfoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Материализованный рейтинг игроков по очкам.
+ * <p>
+ * Держит неизменяемый снимок: массивы строк, отсортированные по (очки desc, userId asc), для всего рейтинга
+ * и для срезов по полу, городу и их сочетанию. Страница — это срез массива, "мое место" — бинарный поиск.
+ * <p>
+ * Изменения очков и профиля применяются к снимку точечно: после коммита перечитываются только строки
+ * затронутых игроков, и пересобираются лишь содержащие их срезы (слиянием, без сортировки и без полной
+ * выборки из БД). Изменения, сделанные на других экземплярах приложения, подхватываются полной пересборкой
+ * по истечении leaderboard.snapshot.ttl-seconds; пока она идет, запросы обслуживаются предыдущим снимком.
+ */
+@Service
+@RequiredArgsConstructor
+public class LeaderboardService {
+
+    private static final Comparator<LeaderboardRow> ORDER = Comparator
+            .comparing(LeaderboardRow::points, Comparator.reverseOrder())
+            .thenComparing(LeaderboardRow::userId);
+
+    private final UserInfoRepository userInfoRepository;
+
+    @Value("${leaderboard.snapshot.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    private volatile long builtAt;
+
+    /** Срез рейтинга: строки в порядке мест и соревновательные места (1, 2, 2, 4). */
+    private record Slice(LeaderboardRow[] rows, int[] ranks) {
+    }
+
+    private record Snapshot(Slice all, Map<Gender, Slice> byGender, Map<City, Slice> byCity,
+                            Slice[][] byGenderAndCity, Map<Long, LeaderboardRow> byUser) {
+    }
+
+    /** Помечает рейтинг устаревшим после коммита текущей транзакции (для массовых изменений). */
+    public void markDirty() {
+        AfterCommit.run(() -> dirty.set(true));
+    }
+
+    /**
+     * После коммита текущей транзакции перечитывает строки указанных игроков и применяет их к снимку.
+     * Игроки, которых больше нет в рейтинге (удалены или без очков), из снимка убираются.
+     */
+    public void refresh(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return;
+        List<Long> ids = List.copyOf(userIds);
+        AfterCommit.run(() -> applyChanges(ids));
+    }
+
+    private void applyChanges(List<Long> userIds) {
+        if (snapshot == null || dirty.get()) {
+            return; // Следующее чтение все равно соберет рейтинг заново
+        }
+        // Идет полная пересборка: она могла прочитать данные до коммита, поэтому нужна еще одна
+        if (!rebuildLock.tryLock()) {
+            dirty.set(true);
+            return;
+        }
+        try {
+            Snapshot current = snapshot;
+            if (current == null || dirty.get()) return;
+            // Строки читаются целиком, а не как дельта очков: повторное применение ничего не ломает
+            Map<Long, LeaderboardRow> changed = new HashMap<>();
+            userIds.forEach(id -> changed.put(id, null));
+            userInfoRepository.findLeaderboardRowsByIdIn(userIds).forEach(row -> changed.put(row.userId(), row));
+            snapshot = patch(current, changed);
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось точечно обновить рейтинг, будет полная пересборка: " + e.getMessage());
+            dirty.set(true);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public CustomPageResponse<LeaderboardEntryDto> getPage(int page, int size, Gender gender, City city) {
+        if (page < 1 || size < 1) {
+            throw new BadRequestException("Номер страницы и размер должны быть положительными.");
+        }
+        Slice slice = select(current(), gender, city);
+        int total = slice.rows().length;
+        long from = (long) (page - 1) * size;
+
+        List<LeaderboardEntryDto> data = new ArrayList<>();
+        for (int i = (int) Math.min(from, total); i < Math.min(from + size, total); i++) {
+            data.add(toDto(slice.rows()[i], slice.ranks()[i]));
+        }
+        return new CustomPageResponse<>(page, size, (long) total, data);
+    }
+
+    /**
+     * Keyset-режим: курсор — (очки, userId) последней отданной строки, начало страницы находится бинарным поиском.
+     */
+    public CursorPageResponse<LeaderboardEntryDto> scroll(String cursor, int size, boolean withTotal, Gender gender, City city) {
+        CursorPageResponse.fetchSize(size); // Валидация размера
+        Slice slice = select(current(), gender, city);
+        PageCursor after = PageCursor.decode(cursor);
+
+        int from = 0;
+        if (after != null) {
+            if (after.keyAsFloat() == null) {
+                throw new BadRequestException("Некорректный курсор страницы.");
+            }
+            LeaderboardRow probe = new LeaderboardRow(after.id(), null, null, null, null, null, null, null, after.keyAsFloat());
+            int index = Arrays.binarySearch(slice.rows(), probe, ORDER);
+            from = index >= 0 ? index + 1 : -index - 1;
+        }
+        int to = Math.min(from + size, slice.rows().length);
+
+        List<LeaderboardEntryDto> data = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            data.add(toDto(slice.rows()[i], slice.ranks()[i]));
+        }
+        String nextCursor = to < slice.rows().length
+                ? PageCursor.encode(slice.rows()[to - 1].points(), slice.rows()[to - 1].userId())
+                : null;
+        return new CursorPageResponse<>(size, nextCursor, withTotal ? (long) slice.rows().length : null, data);
+    }
+
+    public LeaderboardEntryDto getRank(Long userId, Gender gender, City city) {
+        if (userId == null) {
+            throw new BadRequestException("ID пользователя не может быть null.");
+        }
+        Snapshot current = current();
+        LeaderboardRow row = current.byUser().get(userId);
+        if (row == null || (gender != null && gender != row.gender()) || (city != null && city != row.city())) {
+            throw new NoSuchElementException("Пользователь с ID " + userId + " отсутствует в этом рейтинге.");
+        }
+        Slice slice = select(current, gender, city);
+        int index = Arrays.binarySearch(slice.rows(), row, ORDER);
+        return toDto(row, slice.ranks()[index]);
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && !dirty.get() && !expired()) {
+            return current;
+        }
+        // Самый первый запрос ждет сборку, остальные при занятой блокировке берут предыдущий снимок
+        if (current == null) {
+            rebuildLock.lock();
+        } else if (!rebuildLock.tryLock()) {
+            return current;
+        }
+        try {
+            if (snapshot == null || dirty.get() || expired()) {
+                dirty.set(false); // До чтения, чтобы не потерять изменения, пришедшие во время сборки
+                long startedAt = System.currentTimeMillis();
+                snapshot = build(userInfoRepository.findLeaderboardRows());
+                builtAt = startedAt;
+            }
+            return snapshot;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Snapshot build(List<LeaderboardRow> rows) {
+        LeaderboardRow[] sorted = rows.toArray(new LeaderboardRow[0]);
+        Arrays.sort(sorted, ORDER);
+
+        // Срезы собираются одним проходом по уже отсортированному массиву, порядок сохраняется
+        Map<Gender, List<LeaderboardRow>> genderRows = new EnumMap<>(Gender.class);
+        Map<City, List<LeaderboardRow>> cityRows = new EnumMap<>(City.class);
+        Map<Long, LeaderboardRow> byUser = new HashMap<>(sorted.length * 2);
+        for (LeaderboardRow row : sorted) {
+            byUser.put(row.userId(), row);
+            if (row.gender() != null) genderRows.computeIfAbsent(row.gender(), g -> new ArrayList<>()).add(row);
+            if (row.city() != null) cityRows.computeIfAbsent(row.city(), c -> new ArrayList<>()).add(row);
+        }
+
+        Map<Gender, Slice> byGender = new EnumMap<>(Gender.class);
+        genderRows.forEach((gender, list) -> byGender.put(gender, slice(list.toArray(new LeaderboardRow[0]))));
+        Map<City, Slice> byCity = new EnumMap<>(City.class);
+        Slice[][] byGenderAndCity = new Slice[Gender.values().length][City.values().length];
+        cityRows.forEach((city, list) -> {
+            byCity.put(city, slice(list.toArray(new LeaderboardRow[0])));
+            for (Gender gender : Gender.values()) {
+                LeaderboardRow[] both = list.stream().filter(r -> r.gender() == gender).toArray(LeaderboardRow[]::new);
+                byGenderAndCity[gender.ordinal()][city.ordinal()] = slice(both);
+            }
+        });
+        return new Snapshot(slice(sorted), byGender, byCity, byGenderAndCity, byUser);
+    }
+
+    private boolean expired() {
+        return System.currentTimeMillis() - builtAt >= ttlSeconds * 1000;
+    }
+
+    /** Новый снимок, в котором строки changed (null — удаление) заменены; остальные срезы переиспользуются. */
+    private Snapshot patch(Snapshot current, Map<Long, LeaderboardRow> changed) {
+        Map<Long, LeaderboardRow> byUser = new HashMap<>(current.byUser());
+        Set<Gender> genders = EnumSet.noneOf(Gender.class);
+        Set<City> cities = EnumSet.noneOf(City.class);
+        List<LeaderboardRow> fresh = new ArrayList<>();
+        changed.forEach((userId, row) -> {
+            LeaderboardRow old = row == null ? byUser.remove(userId) : byUser.put(userId, row);
+            // Затронуты срезы и старых, и новых значений пола и города
+            for (LeaderboardRow affected : new LeaderboardRow[]{old, row}) {
+                if (affected == null) continue;
+                if (affected.gender() != null) genders.add(affected.gender());
+                if (affected.city() != null) cities.add(affected.city());
+            }
+            if (row != null) fresh.add(row);
+        });
+        fresh.sort(ORDER);
+        Set<Long> ids = changed.keySet();
+
+        Map<Gender, Slice> byGender = new EnumMap<>(Gender.class);
+        byGender.putAll(current.byGender());
+        for (Gender gender : genders) {
+            byGender.put(gender, merge(select(current, gender, null), ids, fresh, r -> r.gender() == gender));
+        }
+        Map<City, Slice> byCity = new EnumMap<>(City.class);
+        byCity.putAll(current.byCity());
+        Slice[][] byGenderAndCity = new Slice[Gender.values().length][];
+        for (int g = 0; g < byGenderAndCity.length; g++) {
+            byGenderAndCity[g] = current.byGenderAndCity()[g].clone();
+        }
+        for (City city : cities) {
+            byCity.put(city, merge(select(current, null, city), ids, fresh, r -> r.city() == city));
+            for (Gender gender : genders) {
+                byGenderAndCity[gender.ordinal()][city.ordinal()] = merge(select(current, gender, city), ids, fresh,
+                        r -> r.gender() == gender && r.city() == city);
+            }
+        }
+        return new Snapshot(merge(current.all(), ids, fresh, r -> true), byGender, byCity, byGenderAndCity, byUser);
+    }
+
+    /** Убирает из среза строки changedIds и вливает подходящие новые строки (fresh уже отсортирован). */
+    private static Slice merge(Slice slice, Set<Long> changedIds, List<LeaderboardRow> fresh,
+                               Predicate<LeaderboardRow> member) {
+        List<LeaderboardRow> inserted = fresh.stream().filter(member).toList();
+        LeaderboardRow[] rows = new LeaderboardRow[slice.rows().length + inserted.size()];
+        int n = 0;
+        int j = 0;
+        for (LeaderboardRow row : slice.rows()) {
+            if (changedIds.contains(row.userId())) continue;
+            while (j < inserted.size() && ORDER.compare(inserted.get(j), row) < 0) {
+                rows[n++] = inserted.get(j++);
+            }
+            rows[n++] = row;
+        }
+        while (j < inserted.size()) {
+            rows[n++] = inserted.get(j++);
+        }
+        return slice(n == rows.length ? rows : Arrays.copyOf(rows, n));
+    }
+
+    private Slice select(Snapshot current, Gender gender, City city) {
+        Slice slice;
+        if (gender != null && city != null) {
+            slice = current.byGenderAndCity()[gender.ordinal()][city.ordinal()];
+        } else if (gender != null) {
+            slice = current.byGender().get(gender);
+        } else if (city != null) {
+            slice = current.byCity().get(city);
+        } else {
+            slice = current.all();
+        }
+        return slice != null ? slice : new Slice(new LeaderboardRow[0], new int[0]);
+    }
+
+    private static Slice slice(LeaderboardRow[] rows) {
+        int[] ranks = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            ranks[i] = i > 0 && rows[i].points().equals(rows[i - 1].points()) ? ranks[i - 1] : i + 1;
+        }
+        return new Slice(rows, ranks);
+    }
+
+    private static LeaderboardEntryDto toDto(LeaderboardRow row, int rank) {
+        return LeaderboardEntryDto.builder()
+                .rank(rank)
+                .userId(row.userId())
+                .gender(row.gender())
+                .firstName(row.firstName())
+                .lastName(row.lastName())
+                .phone(row.phone())
+                .rating(row.rating())
+                .age(row.age())
+                .points(row.points())
+                .city(row.city())
+                .build();
+    }
+}
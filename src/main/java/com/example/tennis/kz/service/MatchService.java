@@ -4,10 +4,15 @@ import com.example.tennis.kz.exception.BadRequestException; // Импорт
 import com.example.tennis.kz.model.Match;
 import com.example.tennis.kz.model.MatchStatus;
 import com.example.tennis.kz.model.TournamentRegistration;
+import com.example.tennis.kz.model.response.BracketDeltaDto;
+import com.example.tennis.kz.repository.MatchJdbcRepository;
+import com.example.tennis.kz.repository.MatchParticipantJdbcRepository;
 import com.example.tennis.kz.repository.MatchRepository;
 import com.example.tennis.kz.repository.TournamentRegistrationRepository;
 // import jakarta.persistence.EntityNotFoundException; // Заменяем на NoSuchElementException
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,7 +24,38 @@ import java.util.NoSuchElementException; // Импорт
 public class MatchService {
 
     private final MatchRepository matchRepository;
+    private final MatchParticipantJdbcRepository matchParticipantJdbcRepository;
+    private final MatchJdbcRepository matchJdbcRepository;
     private final TournamentRegistrationRepository tournamentRegistrationRepository;
+    private final BracketCache bracketCache;
+    private final BracketEventPublisher bracketEventPublisher;
+    private final PointsService pointsService;
+    private final UserStatsService userStatsService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void dropNextMatchUniqueConstraint() {
+        try {
+            if (matchJdbcRepository.dropNextMatchUniqueConstraint() > 0) {
+                System.out.println("Снято ограничение UNIQUE с matches.next_match_id.");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось снять UNIQUE с matches.next_match_id: " + e.getMessage());
+        }
+    }
+
+    // Индекс истории и первичное заполнение match_participants для матчей, созданных до появления таблицы
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareMatchParticipants() {
+        try {
+            matchParticipantJdbcRepository.ensureIndexes();
+            int inserted = matchParticipantJdbcRepository.backfillIfEmpty();
+            if (inserted > 0) {
+                System.out.println("match_participants заполнена по существующим матчам: " + inserted + " строк.");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось подготовить match_participants: " + e.getMessage());
+        }
+    }
 
     @Transactional
     public Match recordResult(Long matchId, Long winnerRegistrationId, String score) {
@@ -55,7 +91,12 @@ public class MatchService {
         match.setCompletedTime(LocalDateTime.now());
 
         matchRepository.save(match); // Сохраняем результат матча перед продвижением
-        advanceWinner(match, winnerReg); // Продвигаем победителя
+        matchParticipantJdbcRepository.markCompleted(match.getId(), match.getCompletedTime());
+        Match nextMatch = advanceWinner(match, winnerReg); // Продвигаем победителя
+        pointsService.awardForCompletedMatch(match); // Проигравший (и чемпион в финале) получает очки сразу
+        userStatsService.recordMatch(match); // Сводная статистика обоих участников и их партнеров
+        bracketCache.invalidate(match.getTournament().getId());
+        bracketEventPublisher.publish(toDelta(match, nextMatch));
 
         return match; // Возвращаем обновленный матч (уже сохраненный)
     }
@@ -89,12 +130,18 @@ public class MatchService {
         match.setCompletedTime(LocalDateTime.now());
 
         matchRepository.save(match); // Сохраняем результат матча перед продвижением
-        advanceWinner(match, winnerReg); // Продвигаем победителя
+        matchParticipantJdbcRepository.markCompleted(match.getId(), match.getCompletedTime());
+        Match nextMatch = advanceWinner(match, winnerReg); // Продвигаем победителя
+        pointsService.awardForCompletedMatch(match); // Проигравший (и чемпион в финале) получает очки сразу
+        userStatsService.recordMatch(match); // Сводная статистика обоих участников и их партнеров
+        bracketCache.invalidate(match.getTournament().getId());
+        bracketEventPublisher.publish(toDelta(match, nextMatch));
 
         return match; // Возвращаем обновленный матч (уже сохраненный)
     }
 
-    private void advanceWinner(Match completedMatch, TournamentRegistration winner) {
+    // Возвращает следующий матч с заполненным слотом или null для финала
+    private Match advanceWinner(Match completedMatch, TournamentRegistration winner) {
         Match nextMatch = completedMatch.getNextMatch();
         if (nextMatch != null) {
             // Используем ID для получения актуальной сущности из БД
@@ -122,7 +169,23 @@ public class MatchService {
                 // или можно ввести статус PENDING_OPPONENT
                 nextMatchEntity.setStatus(MatchStatus.PENDING_PARTICIPANTS);
             }
-            matchRepository.save(nextMatchEntity);
+            matchParticipantJdbcRepository.insertForSlot(nextMatchEntity, slot, winner);
+            return matchRepository.save(nextMatchEntity);
         }
+        return null;
+    }
+
+    private BracketDeltaDto toDelta(Match completedMatch, Match nextMatch) {
+        return BracketDeltaDto.builder()
+                .tournamentId(completedMatch.getTournament().getId())
+                .matchId(completedMatch.getId())
+                .status(completedMatch.getStatus())
+                .score(completedMatch.getScore())
+                .winnerRegistrationId(completedMatch.getWinner().getId())
+                .winnerName(completedMatch.getWinner().getParticipantName())
+                .nextMatchId(nextMatch != null ? nextMatch.getId() : null)
+                .nextMatchSlot(nextMatch != null ? completedMatch.getNextMatchSlot() : null)
+                .nextMatchStatus(nextMatch != null ? nextMatch.getStatus() : null)
+                .build();
     }
 }
\ No newline at end of file
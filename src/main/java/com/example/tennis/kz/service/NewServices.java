@@ -2,27 +2,73 @@ package com.example.tennis.kz.service;
 
 import com.example.tennis.kz.exception.BadRequestException; // Импорт
 import com.example.tennis.kz.model.News;
+import com.example.tennis.kz.model.NewsImageStatus;
+import com.example.tennis.kz.model.NewsImageUpload;
+import com.example.tennis.kz.model.User;
+import com.example.tennis.kz.model.response.CursorPageResponse;
+import com.example.tennis.kz.model.response.PageCursor;
+import com.example.tennis.kz.model.response.PresignedUrlResponse;
+import com.example.tennis.kz.repository.NewsImageUploadRepository;
 import com.example.tennis.kz.repository.NewsRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
 public class NewServices { // Предполагается NewsServices
 
+    // Ключи уменьшенных копий: "{ключ оригинала}_w{ширина}"
+    private static final Pattern DERIVATIVE_KEY = Pattern.compile(".*_w\\d+$");
+
     private final NewsRepository newsRepository;
+    private final NewsImageUploadRepository newsImageUploadRepository;
     private final R2StorageService r2StorageService;
+    private final R2ImageProxy r2ImageProxy;
+    private final NewsImageDerivatives newsImageDerivatives;
 
-    @Transactional
+    @Value("${storage.upload.stale-after-minutes:60}")
+    private long staleUploadMinutes;
+
+    @Value("${storage.presign.upload-ttl-seconds:600}")
+    private long presignUploadTtlSeconds;
+
+    @Value("${storage.presign.download-ttl-seconds:3600}")
+    private long presignDownloadTtlSeconds;
+
+    @Value("${storage.presign.claim-window-minutes:60}")
+    private long claimWindowMinutes;
+
+    @Value("${news.image.max-upload-bytes:10485760}")
+    private long maxUploadBytes;
+
+    // Ключ и тип объекта, которые нужно отдать по запросу изображения новости
+    private record ImageRef(String key, String contentType) {
+    }
+
+    /**
+     * Создание новости без транзакции вокруг загрузки: файл копируется во временный файл, новость сохраняется
+     * со статусом изображения PENDING, а загрузка в R2 идет асинхронно и по завершении выставляет READY или FAILED.
+     * Ни поток запроса, ни соединение с БД не ждут окончания загрузки.
+     */
     public News createNews(News news, MultipartFile file) throws IOException {
         if (news == null) {
             throw new BadRequestException("Объект новости не может быть null.");
@@ -40,11 +86,156 @@ public class NewServices { // Предполагается NewsServices
         }
         // Дополнительные проверки для news.getDescription() если необходимо
 
-        String imageKey = r2StorageService.uploadFile(file);
+        // MultipartFile живет только до конца запроса, поэтому содержимое сначала переносится во временный файл
+        Path spooled = Files.createTempFile("news-upload-", ".tmp");
+        try {
+            file.transferTo(spooled);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+
+        String imageKey = r2StorageService.newKey(file.getOriginalFilename());
         news.setImage(imageKey);
         news.setImageContentType(contentType);
+        news.setImageStatus(NewsImageStatus.PENDING);
+        News saved;
+        try {
+            saved = newsRepository.save(news);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
 
-        return newsRepository.save(news);
+        Long newsId = saved.getId();
+        r2StorageService.uploadFileAsync(imageKey, spooled, contentType)
+                .whenComplete((key, error) -> finishImageUpload(newsId, imageKey, contentType, spooled, error));
+        return saved;
+    }
+
+    private void finishImageUpload(Long newsId, String imageKey, String contentType, Path spooled, Throwable error) {
+        boolean handedOff = false;
+        try {
+            NewsImageStatus status = error == null ? NewsImageStatus.READY : NewsImageStatus.FAILED;
+            int updated = newsRepository.updateImageStatus(newsId, NewsImageStatus.PENDING, status);
+            if (updated == 0 && error == null) {
+                // Новость удалили во время загрузки: объект в R2 больше никому не нужен
+                r2StorageService.deleteFile(imageKey);
+            } else if (error == null) {
+                // Временный файл переходит к генерации уменьшенных копий, она же его и удалит
+                newsImageDerivatives.submit(newsId, imageKey, contentType, spooled);
+                handedOff = true;
+            }
+            if (error != null) {
+                System.err.println("Загрузка изображения новости " + newsId + " не удалась: " + error.getMessage());
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось завершить загрузку изображения новости " + newsId + ": " + e.getMessage());
+        } finally {
+            if (!handedOff) {
+                try {
+                    Files.deleteIfExists(spooled);
+                } catch (IOException e) {
+                    System.err.println("Не удалось удалить временный файл " + spooled + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Выдает ссылку для загрузки изображения напрямую в R2, минуя приложение. После загрузки клиент
+     * создает новость через createNewsFromUpload с полученным ключом; ключ запоминается за uploader
+     * и действует claim-window-minutes.
+     */
+    public PresignedUrlResponse createImageUpload(User uploader, String filename, String contentType, long size) {
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new BadRequestException("Ошибка: Поддерживаются только файлы изображений (image/*). Получен тип: " + contentType);
+        }
+        if (size <= 0 || size > maxUploadBytes) {
+            throw new BadRequestException("Размер файла должен быть от 1 до " + maxUploadBytes + " байт.");
+        }
+        String key = r2StorageService.newKey(filename);
+        newsImageUploadRepository.save(NewsImageUpload.builder()
+                .imageKey(key)
+                .uploaderId(uploader.getId())
+                .contentType(contentType)
+                .contentLength(size)
+                .expiresAt(LocalDateTime.now().plusMinutes(claimWindowMinutes))
+                .build());
+        return r2StorageService.presignUpload(key, contentType, size, Duration.ofSeconds(presignUploadTtlSeconds));
+    }
+
+    /**
+     * Создает новость по ключу объекта, который клиент уже загрузил в R2 по подписанной ссылке.
+     * Принимаются только ключи, выданные автору новости через createImageUpload и еще не истекшие:
+     * чужие объекты бакета (в том числе уменьшенные копии) к новости не привязать. Выдача ключа
+     * забирается в транзакции, поэтому при ошибке проверки его можно использовать повторно.
+     */
+    @Transactional
+    public News createNewsFromUpload(News news, String imageKey) {
+        if (news == null) {
+            throw new BadRequestException("Объект новости не может быть null.");
+        }
+        if (news.getTitle() == null || news.getTitle().trim().isEmpty()) {
+            throw new BadRequestException("Заголовок новости не может быть пустым.");
+        }
+        if (imageKey == null || imageKey.isBlank()) {
+            throw new BadRequestException("Ключ изображения не может быть пустым.");
+        }
+        if (DERIVATIVE_KEY.matcher(imageKey).matches()) {
+            throw new BadRequestException("Ключ уменьшенной копии нельзя использовать как изображение новости.");
+        }
+        if (news.getAuthor() == null
+                || newsImageUploadRepository.consume(imageKey, news.getAuthor().getId(), LocalDateTime.now()) == 0) {
+            throw new BadRequestException("Загрузка с ключом '" + imageKey + "' не выдавалась этому пользователю или истекла.");
+        }
+        if (newsRepository.existsByImage(imageKey)) {
+            throw new BadRequestException("Изображение с этим ключом уже привязано к другой новости.");
+        }
+
+        HeadObjectResponse head;
+        try {
+            head = r2StorageService.headFile(imageKey);
+        } catch (NoSuchElementException e) {
+            throw new BadRequestException("Файл с ключом '" + imageKey + "' не загружен в хранилище.");
+        }
+        String contentType = head.contentType();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new BadRequestException("Ошибка: Поддерживаются только файлы изображений (image/*). Получен тип: " + contentType);
+        }
+        if (head.contentLength() != null && head.contentLength() > maxUploadBytes) {
+            throw new BadRequestException("Размер файла превышает " + maxUploadBytes + " байт.");
+        }
+
+        news.setImage(imageKey);
+        news.setImageContentType(contentType);
+        news.setImageStatus(NewsImageStatus.READY);
+        News saved = newsRepository.save(news);
+        AfterCommit.run(() -> newsImageDerivatives.submitFromStorage(saved.getId(), imageKey, contentType));
+        return saved;
+    }
+
+    // Выданные, но так и не использованные загрузки; сами объекты убирает lifecycle-правило бакета
+    @Scheduled(initialDelayString = "${storage.presign.cleanup-initial-delay-ms:600000}",
+            fixedDelayString = "${storage.presign.cleanup-interval-ms:3600000}")
+    public void deleteExpiredUploads() {
+        newsImageUploadRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    /**
+     * Загрузки, не завершившиеся за stale-after-minutes, помечаются FAILED: их временные файлы пропали вместе
+     * с упавшим процессом (этим или другим экземпляром). Проверка периодическая, поэтому оборванные незадолго
+     * до перезапуска загрузки тоже закрываются, как только станут старше порога. Загрузка, идущая дольше порога,
+     * тоже считается оборванной: ее завершение не найдет PENDING-строку и удалит объект.
+     */
+    @Scheduled(initialDelayString = "${storage.upload.stale-check-initial-delay-ms:60000}",
+            fixedDelayString = "${storage.upload.stale-check-interval-ms:600000}")
+    public void failStaleUploads() {
+        int failed = newsRepository.updateStaleImageStatus(NewsImageStatus.PENDING, NewsImageStatus.FAILED,
+                LocalDateTime.now().minusMinutes(staleUploadMinutes));
+        if (failed > 0) {
+            System.out.println("Незавершенных загрузок изображений новостей помечено FAILED: " + failed);
+        }
     }
 
     @Transactional
@@ -55,8 +246,15 @@ public class NewServices { // Предполагается NewsServices
         News news = findNews(id); // findNews выбросит NoSuchElementException если новость не найдена
         String imageKey = news.getImage();
 
-        if (imageKey != null && !imageKey.isEmpty()) {
+        // Пока загрузка не завершилась, объекта в R2 еще нет: его удалит обработчик завершения загрузки
+        if (imageKey != null && !imageKey.isEmpty() && news.getImageStatus() != NewsImageStatus.PENDING) {
             r2StorageService.deleteFile(imageKey);
+            newsImageDerivatives.deleteVariants(imageKey, news.getImageVariants());
+            List<Integer> variantWidths = NewsImageDerivatives.parse(news.getImageVariants());
+            AfterCommit.run(() -> {
+                r2ImageProxy.evict(imageKey);
+                variantWidths.forEach(width -> r2ImageProxy.evict(NewsImageDerivatives.variantKey(imageKey, width)));
+            });
         }
         newsRepository.delete(news);
     }
@@ -69,21 +267,38 @@ public class NewServices { // Предполагается NewsServices
                 -> new NoSuchElementException(String.format("Новость с ID '%d' не найдена.", id)));
     }
 
-    public ResponseInputStream<GetObjectResponse> downloadNewsImage(Long newsId) {
+    // Отдает изображение новости через дисковый кэш: повторные запросы не ходят в R2.
+    // size — желаемая ширина: отдается ближайшая копия не уже нее, а если такой нет — оригинал
+    public void serveNewsImage(Long newsId, Integer size, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageRef image = resolveImage(newsId, size);
+        r2ImageProxy.serve(image.key(), image.contentType(), request, response);
+    }
+
+    // Подписанная ссылка на изображение: клиент скачивает его прямо из R2, не нагружая приложение
+    public PresignedUrlResponse getNewsImageUrl(Long newsId, Integer size) {
+        ImageRef image = resolveImage(newsId, size);
+        return r2StorageService.presignDownload(image.key(), Duration.ofSeconds(presignDownloadTtlSeconds));
+    }
+
+    private ImageRef resolveImage(Long newsId, Integer size) {
         News news = findNews(newsId); // findNews содержит проверки
         String imageKey = news.getImage();
 
-        if (imageKey == null || imageKey.isEmpty()) {
+        if (imageKey == null || imageKey.isEmpty() || news.getImageStatus() == NewsImageStatus.FAILED) {
             throw new NoSuchElementException(String.format("Новость с ID '%d' не имеет связанного изображения.", newsId));
         }
-
-        ResponseInputStream<GetObjectResponse> responseStream = r2StorageService.downloadFile(imageKey);
-
-        if (responseStream == null) {
-            // Это указывает на несоответствие (ключ есть, файла нет в R2) или ошибку в R2StorageService
-            throw new IllegalStateException(String.format("Не удалось загрузить изображение с ключом '%s' для новости ID '%d'. Возможно, файл отсутствует в хранилище.", imageKey, newsId));
+        if (news.getImageStatus() == NewsImageStatus.PENDING) {
+            throw new NoSuchElementException(String.format("Изображение новости с ID '%d' еще загружается.", newsId));
+        }
+        if (size != null && size <= 0) {
+            throw new BadRequestException("Ширина изображения должна быть положительной.");
         }
-        return responseStream;
+        Integer width = NewsImageDerivatives.pickWidth(news.getImageVariants(), size);
+        if (width == null) {
+            return new ImageRef(imageKey, news.getImageContentType());
+        }
+        return new ImageRef(NewsImageDerivatives.variantKey(imageKey, width),
+                NewsImageDerivatives.variantContentType(news.getImageContentType()));
     }
 
     @Transactional
@@ -109,4 +324,15 @@ public class NewServices { // Предполагается NewsServices
         }
         return newsRepository.findAll(pageable);
     }
+
+    @Transactional(readOnly = true)
+    public CursorPageResponse<News> scrollNews(String cursor, int size, boolean withTotal) {
+        Pageable limit = PageRequest.of(0, CursorPageResponse.fetchSize(size));
+        PageCursor after = PageCursor.decode(cursor);
+        List<News> rows = after == null
+                ? newsRepository.scrollFirst(limit)
+                : newsRepository.scrollAfter(after.keyAsDateTime(), after.id(), limit);
+        Long total = withTotal ? newsRepository.count() : null;
+        return CursorPageResponse.of(rows, size, row -> PageCursor.encode(row.getCreatedAt(), row.getId()), row -> row, total);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,264 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.repository.NewsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Уменьшенные копии изображений новостей фиксированной ширины (news.image.derivative-widths).
+ * <p>
+ * Генерация идет на ограниченном пуле после того, как оригинал загружен в R2: при переполненной очереди
+ * задача отбрасывается, и новость просто отдает оригинал. Копии хранятся в R2 под ключом
+ * "{ключ оригинала}_w{ширина}", а в News.imageVariants записываются готовые ширины через запятую.
+ * PNG остается PNG (сохраняется прозрачность), остальные форматы кодируются в JPEG.
+ */
+@Service
+@RequiredArgsConstructor
+public class NewsImageDerivatives {
+
+    private final R2StorageService r2StorageService;
+    private final NewsRepository newsRepository;
+
+    @Value("${news.image.derivative-widths:320,640,1280}")
+    private int[] widths;
+
+    @Value("${news.image.derivative-workers:2}")
+    private int workers;
+
+    @Value("${news.image.derivative-queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${news.image.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Value("${news.image.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    private ThreadPoolExecutor pool;
+
+    @PostConstruct
+    void start() {
+        widths = Arrays.stream(widths).filter(width -> width > 0).distinct().sorted().toArray();
+        int workerCount = Math.max(1, workers);
+        pool = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "news-image-derivatives");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /** Ставит генерацию копий в очередь; исходный временный файл удаляется по ее завершении. */
+    public void submit(Long newsId, String imageKey, String contentType, Path source) {
+        try {
+            pool.execute(() -> generate(newsId, imageKey, contentType, source));
+        } catch (RejectedExecutionException e) {
+            System.err.println("Очередь обработки изображений переполнена, копии для новости " + newsId + " не созданы.");
+            deleteQuietly(source);
+        }
+    }
+
+    /** То же для объекта, уже лежащего в R2 (загружен клиентом напрямую): он скачивается на рабочем потоке. */
+    public void submitFromStorage(Long newsId, String imageKey, String contentType) {
+        try {
+            pool.execute(() -> {
+                Path source;
+                try {
+                    source = Files.createTempFile("news-derivative-", ".tmp");
+                    Files.delete(source); // downloadToFile создает файл сам
+                } catch (IOException e) {
+                    System.err.println("Не удалось создать временный файл для новости " + newsId + ": " + e.getMessage());
+                    return;
+                }
+                try {
+                    r2StorageService.downloadToFile(imageKey, source);
+                } catch (RuntimeException e) {
+                    System.err.println("Не удалось скачать изображение новости " + newsId + " для обработки: " + e.getMessage());
+                    deleteQuietly(source);
+                    return;
+                }
+                generate(newsId, imageKey, contentType, source);
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Очередь обработки изображений переполнена, копии для новости " + newsId + " не созданы.");
+        }
+    }
+
+    public static String variantKey(String imageKey, int width) {
+        return imageKey + "_w" + width;
+    }
+
+    public static String variantContentType(String originalContentType) {
+        return "image/png".equalsIgnoreCase(originalContentType) ? "image/png" : "image/jpeg";
+    }
+
+    /** Наименьшая готовая копия не уже запрошенной ширины; null — отдавать оригинал. */
+    public static Integer pickWidth(String variants, Integer requested) {
+        if (requested == null || variants == null || variants.isEmpty()) {
+            return null;
+        }
+        for (int width : parse(variants)) {
+            if (width >= requested) {
+                return width;
+            }
+        }
+        return null;
+    }
+
+    public static List<Integer> parse(String variants) {
+        if (variants == null || variants.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(variants.split(",")).map(String::trim).map(Integer::valueOf).sorted().toList();
+    }
+
+    public void deleteVariants(String imageKey, String variants) {
+        for (int width : parse(variants)) {
+            r2StorageService.deleteFile(variantKey(imageKey, width));
+        }
+    }
+
+    private void generate(Long newsId, String imageKey, String contentType, Path source) {
+        try {
+            BufferedImage original = read(source);
+            if (original == null) {
+                System.err.println("Формат изображения новости " + newsId + " (" + contentType + ") не поддерживается, копии не созданы.");
+                return;
+            }
+            String variantType = variantContentType(contentType);
+            Map<Integer, CompletableFuture<String>> uploads = new TreeMap<>();
+            try {
+                for (int width : widths) {
+                    if (width >= original.getWidth()) {
+                        break; // Увеличенные копии не нужны: для таких размеров отдается оригинал
+                    }
+                    byte[] bytes = encode(scale(original, width, variantType), variantType);
+                    uploads.put(width, r2StorageService.uploadBytesAsync(variantKey(imageKey, width), bytes, variantType));
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Не все копии изображения новости " + newsId + " созданы: " + e.getMessage());
+            }
+            // В News попадают только ширины, которые действительно лежат в R2; для остальных отдается оригинал
+            List<Integer> made = new ArrayList<>();
+            uploads.forEach((width, upload) -> {
+                try {
+                    upload.join();
+                    made.add(width);
+                } catch (CompletionException | CancellationException e) {
+                    System.err.println("Копия шириной " + width + " для новости " + newsId + " не загружена: " + e.getMessage());
+                }
+            });
+            if (made.isEmpty()) {
+                return;
+            }
+
+            String variants = made.stream().map(String::valueOf).collect(Collectors.joining(","));
+            if (newsRepository.updateImageVariants(newsId, variants) == 0) {
+                deleteVariants(imageKey, variants); // Новость удалили, пока шла обработка
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Не удалось создать копии изображения новости " + newsId + ": " + e.getMessage());
+        } finally {
+            deleteQuietly(source);
+        }
+    }
+
+    private BufferedImage read(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // Размеры читаются из заголовка до декодирования, чтобы не раскрывать в памяти гигантские картинки
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IllegalStateException("Изображение слишком большое для обработки: " + pixels + " пикселей.");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Уменьшение шагами не более чем вдвое: однократное билинейное сжатие в разы дает заметные артефакты
+    private static BufferedImage scale(BufferedImage source, int targetWidth, String variantType) {
+        boolean alpha = "image/png".equals(variantType) && source.getColorModel().hasAlpha();
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                // Для JPEG прозрачность заливается белым, иначе она станет черной
+                graphics.drawImage(current, 0, 0, width, height, alpha ? null : Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (width > targetWidth);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, String variantType) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if ("image/png".equals(variantType)) {
+            ImageIO.write(image, "png", bytes);
+            return bytes.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Не удалось удалить временный файл " + file + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
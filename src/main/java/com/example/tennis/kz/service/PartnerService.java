@@ -3,11 +3,15 @@ package com.example.tennis.kz.service;
 import com.example.tennis.kz.exception.BadRequestException; // Импорт
 import com.example.tennis.kz.model.City;
 import com.example.tennis.kz.model.Partner;
+import com.example.tennis.kz.model.response.CursorPageResponse;
+import com.example.tennis.kz.model.response.PageCursor;
 import com.example.tennis.kz.repository.PartnerRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable; // Убедимся, что Pageable импортирован
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -44,6 +48,20 @@ public class PartnerService {
         return partnerRepository.findAllByEnabled(enabled, pageable);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageResponse<Partner> scrollPartners(String cursor, int size, boolean withTotal, Boolean enabled) {
+        if (enabled == null) {
+            throw new BadRequestException("Параметр enabled обязателен.");
+        }
+        Pageable limit = PageRequest.of(0, CursorPageResponse.fetchSize(size));
+        PageCursor after = PageCursor.decode(cursor);
+        List<Partner> rows = after == null
+                ? partnerRepository.scrollFirst(enabled, limit)
+                : partnerRepository.scrollAfter(enabled, after.keyAsDateTime(), after.id(), limit);
+        Long total = withTotal ? partnerRepository.countByEnabled(enabled) : null;
+        return CursorPageResponse.of(rows, size, row -> PageCursor.encode(row.getCreatedAt(), row.getId()), row -> row, total);
+    }
+
     public Partner enablePartner(Long id) {
         Partner partner = getPartnerById(id); // getPartnerById уже содержит проверки
         partner.setEnabled(true);
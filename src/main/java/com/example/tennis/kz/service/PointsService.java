@@ -2,116 +2,173 @@ package com.example.tennis.kz.service;
 
 import com.example.tennis.kz.exception.BadRequestException; // Импорт
 import com.example.tennis.kz.model.*;
-import com.example.tennis.kz.repository.TournamentRegistrationRepository;
+import com.example.tennis.kz.repository.MatchRepository;
+import com.example.tennis.kz.repository.PointsLedgerJdbcRepository;
+import com.example.tennis.kz.repository.PointsLedgerJdbcRepository.AppliedAward;
+import com.example.tennis.kz.repository.PointsLedgerJdbcRepository.PointsAward;
 import com.example.tennis.kz.repository.TournamentRepository;
 import com.example.tennis.kz.repository.UserInfoRepository;
 // import jakarta.persistence.EntityNotFoundException; // Заменяем
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-
-import java.util.List;
-import java.util.NoSuchElementException; // Импорт
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Начисление рейтинговых очков через журнал points_ledger.
+ * <p>
+ * Проигравший матч сразу знает свой итоговый раунд, поэтому очки начисляются инкрементально из MatchService.
+ * Каждое начисление уникально по (турнир, регистрация, игрок), так что повторный вызов ничего не удваивает,
+ * а UserInfo.points увеличивается только на реально вставленные записи журнала.
+ * <p>
+ * Турниры, очки за которые начислялись до появления журнала, заносятся в журнал при старте без изменения
+ * UserInfo.points (см. backfillLegacyLedger), поэтому их пересчет не начисляет очки второй раз.
+ */
 @Service
 @RequiredArgsConstructor
 public class PointsService {
 
     private final TournamentRepository tournamentRepository;
-    private final TournamentRegistrationRepository tournamentRegistrationRepository;
+    private final MatchRepository matchRepository;
+    private final PointsLedgerJdbcRepository pointsLedgerJdbcRepository;
     private final UserInfoRepository userInfoRepository;
+    private final LeaderboardService leaderboardService;
+    private final TransactionTemplate transactionTemplate;
+    private final TournamentPointsTable tournamentPointsTable;
+
+    /**
+     * Заносит в журнал турниры, завершенные до его появления. Раньше очки начислялись только вызовом
+     * calculateAndAwardPointsForTournament по завершенному финалу, поэтому у такого турнира очки уже
+     * в UserInfo.points: записи журнала вставляются без начисления. Турниры, завершенные после появления
+     * журнала, всегда имеют записи (финал начисляет очки сразу) и сюда не попадают.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillLegacyLedger() {
+        List<Long> tournamentIds;
+        try {
+            tournamentIds = pointsLedgerJdbcRepository.findFinishedTournamentsWithoutEntries();
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось найти турниры без записей в журнале очков: " + e.getMessage());
+            return;
+        }
+        int filled = 0;
+        for (Long tournamentId : tournamentIds) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        pointsLedgerJdbcRepository.insertIgnoringDuplicates(collectTournamentAwards(tournamentId)));
+                filled++;
+            } catch (RuntimeException e) {
+                System.err.println("Не удалось занести в журнал очков турнир " + tournamentId + ": " + e.getMessage());
+            }
+        }
+        if (filled > 0) {
+            System.out.println("Журнал очков заполнен по ранее завершенным турнирам: " + filled);
+        }
+    }
 
+    /**
+     * Начисляет очки по только что завершенному матчу: проигравшему — за достигнутый раунд,
+     * а в финале еще и чемпиону. Вызывается в транзакции записи результата.
+     */
+    @Transactional
+    public void awardForCompletedMatch(Match match) {
+        Tournament tournament = match.getTournament();
+        List<PointsAward> awards = new ArrayList<>(4);
+        collectAwards(match, tournament, tournament.getTotalRounds(), awards);
+        applyAwards(awards);
+    }
+
+    /**
+     * Досчитывает очки по всему завершенному турниру за O(матчей). Идемпотентно: уже начисленное
+     * (в том числе инкрементально из MatchService) повторно не добавляется.
+     */
     @Transactional
     public void calculateAndAwardPointsForTournament(Long tournamentId) {
         if (tournamentId == null) {
             throw new BadRequestException("ID турнира не может быть null.");
         }
+        applyAwards(collectTournamentAwards(tournamentId));
+    }
+
+    private List<PointsAward> collectTournamentAwards(Long tournamentId) {
         Tournament tournament = tournamentRepository.findById(tournamentId)
                 .orElseThrow(() -> new NoSuchElementException("Турнир с ID: " + tournamentId + " не найден."));
 
-        Match finalMatch = tournament.getMatches().stream()
-                .filter(m -> m.getRoundNumber() != null && m.getRoundNumber() == tournament.getTotalRounds())
+        int totalRoundsInTournament = tournament.getTotalRounds();
+        List<Match> matches = matchRepository.findByTournamentIdOrderByRoundNumberAscMatchNumberInBracketAsc(tournamentId);
+
+        Match finalMatch = matches.stream()
+                .filter(m -> m.getRoundNumber() != null && m.getRoundNumber() == totalRoundsInTournament)
                 .findFirst()
                 .orElse(null); // Оставляем orElse(null) для явной проверки ниже
 
-        if (finalMatch == null || (finalMatch.getStatus() != MatchStatus.COMPLETED && finalMatch.getStatus() != MatchStatus.WALKOVER)) {
+        if (finalMatch == null || !isFinished(finalMatch)) {
             // Если клиент пытается вычислить очки для незавершенного турнира, это некорректный запрос.
             throw new BadRequestException("Турнир еще не завершен или финальный матч не отмечен как COMPLETED/WALKOVER. Невозможно рассчитать очки.");
         }
 
-        List<TournamentRegistration> registrations = tournamentRegistrationRepository.findByTournamentId(tournamentId);
-        if (registrations.isEmpty() && tournament.getTotalRounds() > 0) {
-
-            System.out.println("Нет регистраций для расчета очков в турнире ID: " + tournamentId);
-            return;
-        }
-
-        int totalRoundsInTournament = tournament.getTotalRounds();
-
-        for (TournamentRegistration reg : registrations) {
-            int roundReached = 0;
-
-            if (finalMatch.getWinner() != null && finalMatch.getWinner().equals(reg)) {
-                roundReached = totalRoundsInTournament + 1;
-            } else {
-                int maxRoundPlayedThisParticipant = 0;
-                boolean lostInKnownMatch = false;
-
-                for (Match match : tournament.getMatches()) {
-                    boolean participatedInThisMatch = (match.getParticipant1() != null && match.getParticipant1().equals(reg)) ||
-                            (match.getParticipant2() != null && match.getParticipant2().equals(reg));
-
-                    if (participatedInThisMatch) {
-                        if (match.getRoundNumber() == null) {
-                            // Это указывает на проблему с данными матча
-                            throw new IllegalStateException("Нарушение целостности данных: номер раунда не установлен для матча ID " + match.getId() + " в турнире " + tournamentId);
-                        }
-                        maxRoundPlayedThisParticipant = Math.max(maxRoundPlayedThisParticipant, match.getRoundNumber());
-
-                        if (match.getWinner() != null && !match.getWinner().equals(reg) &&
-                                (match.getStatus() == MatchStatus.COMPLETED || match.getStatus() == MatchStatus.WALKOVER)) {
-                            roundReached = match.getRoundNumber();
-                            lostInKnownMatch = true;
-                            break;
-                        }
-                    }
-                }
-                if (!lostInKnownMatch && maxRoundPlayedThisParticipant == totalRoundsInTournament) {
-                    roundReached = totalRoundsInTournament;
-                } else if (!lostInKnownMatch && maxRoundPlayedThisParticipant > 0) {
-                    roundReached = maxRoundPlayedThisParticipant;
-                }
+        List<PointsAward> awards = new ArrayList<>();
+        for (Match match : matches) {
+            if (match.getRoundNumber() == null) {
+                // Это указывает на проблему с данными матча
+                throw new IllegalStateException("Нарушение целостности данных: номер раунда не установлен для матча ID " + match.getId() + " в турнире " + tournamentId);
             }
+            collectAwards(match, tournament, totalRoundsInTournament, awards);
+        }
+        return awards;
+    }
 
-            // Логика для случая, когда roundReached == 0 остается как предупреждение.
-            // Если это критическая ошибка, можно было бы выбросить IllegalStateException.
-
-            int pointsAwarded = tournament.getTier().getPointsForRound(roundReached, totalRoundsInTournament);
+    // Каждый участник проигрывает не больше одного матча, поэтому итоговый раунд определяется самим матчем
+    private void collectAwards(Match match, Tournament tournament, int totalRounds, List<PointsAward> awards) {
+        if (!isFinished(match) || match.getWinner() == null
+                || match.getParticipant1() == null || match.getParticipant2() == null) {
+            return; // "bye" и незавершенные матчи очков не дают
+        }
+        TournamentRegistration winner = match.getWinner();
+        TournamentRegistration loser = winner.equals(match.getParticipant1()) ? match.getParticipant2() : match.getParticipant1();
 
-            if (pointsAwarded > 0) {
-                awardPointsToPlayer(reg.getUser(), pointsAwarded);
-                if (tournament.getTournamentType() == TournamentType.DOUBLES && reg.getPartner() != null) {
-                    awardPointsToPlayer(reg.getPartner(), pointsAwarded);
-                }
-            }
+        addRegistrationAwards(tournament, loser, match.getRoundNumber(), totalRounds, awards);
+        if (match.getRoundNumber() == totalRounds) {
+            addRegistrationAwards(tournament, winner, totalRounds + 1, totalRounds, awards);
         }
     }
 
-    private void awardPointsToPlayer(User player, int points) {
+    private void addRegistrationAwards(Tournament tournament, TournamentRegistration reg, int roundReached,
+                                       int totalRounds, List<PointsAward> awards) {
+        int points = tournamentPointsTable.getPointsForRound(tournament.getTier(), roundReached, totalRounds);
         if (points <= 0) return; // Не начисляем 0 или отрицательные очки
 
-        if (player == null) {
+        if (reg.getUser() == null) {
             // Это неожиданная ситуация, если логика выше предполагает наличие игрока
-            throw new IllegalStateException("Попытка начислить очки null игроку.");
+            throw new IllegalStateException("Попытка начислить очки null игроку (регистрация ID: " + reg.getId() + ").");
+        }
+        awards.add(new PointsAward(tournament.getId(), reg.getId(), reg.getUser().getId(), roundReached, points));
+        if (tournament.getTournamentType() == TournamentType.DOUBLES && reg.getPartner() != null) {
+            awards.add(new PointsAward(tournament.getId(), reg.getId(), reg.getPartner().getId(), roundReached, points));
+        }
+    }
+
+    private void applyAwards(List<PointsAward> awards) {
+        if (awards.isEmpty()) return;
+
+        // Сумма по игроку, затем один UPDATE на каждую различную сумму
+        Map<Long, Integer> pointsByUser = new HashMap<>();
+        for (AppliedAward applied : pointsLedgerJdbcRepository.insertIgnoringDuplicates(awards)) {
+            pointsByUser.merge(applied.userId(), applied.points(), Integer::sum);
         }
-        if (player.getUserInfo() == null) {
-            // Также неожиданно, если UserInfo должно всегда существовать для игрока
-            throw new IllegalStateException("Попытка начислить очки игроку (ID: " + player.getId() + ") без UserInfo.");
+        Map<Integer, List<Long>> usersByDelta = new HashMap<>();
+        pointsByUser.forEach((userId, delta) -> usersByDelta.computeIfAbsent(delta, d -> new ArrayList<>()).add(userId));
+        usersByDelta.forEach((delta, userIds) -> userInfoRepository.addPoints(delta.floatValue(), userIds));
+        if (!pointsByUser.isEmpty()) {
+            leaderboardService.refresh(pointsByUser.keySet());
         }
+    }
 
-        UserInfo userInfo = player.getUserInfo();
-        Float currentPoints = userInfo.getPoints() != null ? userInfo.getPoints() : 0f;
-        userInfo.setPoints(currentPoints + points);
-        userInfoRepository.save(userInfo);
+    private boolean isFinished(Match match) {
+        return match.getStatus() == MatchStatus.COMPLETED || match.getStatus() == MatchStatus.WALKOVER;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,326 @@
+package com.example.tennis.kz.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Раздача объектов R2 через локальный дисковый кэш.
+ * <p>
+ * Промах скачивает объект из R2 во временный файл и атомарно переносит его на место; одновременные промахи
+ * по одному ключу ждут одну загрузку. Кэш ограничен суммарным размером: при переполнении удаляются файлы,
+ * к которым дольше всего не обращались (порядок обращений хранится в памяти, после перезапуска восстанавливается
+ * по времени изменения файлов). Файл, который сейчас отдается, закреплен счетчиком ссылок и не удаляется,
+ * пока отдача не закончится; из-за закрепленных файлов кэш может ненадолго превысить лимит.
+ * Ключи объектов начинаются с UUID и никогда не перезаписываются, поэтому ETag выводится из ключа, а ответ
+ * помечается immutable. Поддерживаются If-None-Match (304) и один диапазон Range (206). Тело отдается
+ * через sendfile Tomcat, если он доступен, иначе через FileChannel.transferTo. Sendfile открывает файл уже после
+ * выхода из serve, когда закрепление снято, но к этому моменту файл — самый свежий в порядке обращений и
+ * вытесняется последним.
+ */
+@Service
+@RequiredArgsConstructor
+public class R2ImageProxy {
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String TMP_SUFFIX = ".part";
+
+    // Атрибуты запроса Tomcat для отдачи файла через sendfile (zero-copy)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final R2StorageService r2StorageService;
+
+    @Value("${storage.cache.directory:./uploads}")
+    private String cacheDirectory;
+
+    @Value("${storage.cache.max-bytes:1073741824}")
+    private long maxBytes;
+
+    private Path root;
+    private long totalBytes;
+    // Имя файла (SHA-256 ключа) -> размер; порядок доступа для LRU, доступ под блокировкой на самой карте
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    // Имя файла -> число отдач, читающих его сейчас; файлы, убранные из кэша во время отдачи, удаляются после нее
+    private final Map<String, Integer> pins = new HashMap<>();
+    private final Set<String> doomed = new HashSet<>();
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() throws IOException {
+        root = Paths.get(cacheDirectory).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        // Уже лежащие файлы подхватываются в порядке последнего изменения, недокачанные удаляются
+        List<Path> existing;
+        try (Stream<Path> files = Files.list(root)) {
+            existing = files.filter(Files::isRegularFile).toList();
+        }
+        List<Map.Entry<Path, BasicFileAttributes>> indexed = new ArrayList<>();
+        for (Path file : existing) {
+            if (file.getFileName().toString().endsWith(TMP_SUFFIX)) {
+                Files.deleteIfExists(file);
+            } else {
+                indexed.add(Map.entry(file, Files.readAttributes(file, BasicFileAttributes.class)));
+            }
+        }
+        indexed.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+        synchronized (entries) {
+            for (Map.Entry<Path, BasicFileAttributes> entry : indexed) {
+                entries.put(entry.getKey().getFileName().toString(), entry.getValue().size());
+                totalBytes += entry.getValue().size();
+            }
+            evictOverLimit(null);
+        }
+        System.out.println("Кэш изображений: " + root + ", файлов " + indexed.size() + ", байт " + totalBytes);
+    }
+
+    /**
+     * Отдает объект по ключу с учетом If-None-Match и Range. contentType — сохраненный тип объекта.
+     */
+    public void serve(String key, String contentType, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String name = TokenHashes.sha256(key);
+        String etag = "\"" + name + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        Path file = fetch(key, name);
+        try {
+            send(file, etag, contentType, request, response);
+        } finally {
+            release(name);
+        }
+    }
+
+    private void send(Path file, String etag, String contentType, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        long size = Files.size(file);
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        response.setContentType(contentType != null ? contentType : "application/octet-stream");
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || length == 0) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            while (position <= end) {
+                long transferred = channel.transferTo(position, end + 1 - position, target);
+                if (transferred <= 0) break;
+                position += transferred;
+            }
+            out.flush();
+        }
+    }
+
+    /** Удаляет объект из кэша (например, при удалении новости). */
+    public void evict(String key) {
+        String name = TokenHashes.sha256(key);
+        synchronized (entries) {
+            Long size = entries.remove(name);
+            if (size != null) totalBytes -= size;
+            if (pins.containsKey(name)) {
+                doomed.add(name); // Удалит последняя отдача
+                return;
+            }
+        }
+        deleteQuietly(root.resolve(name));
+    }
+
+    /**
+     * Возвращает файл объекта, закрепленный за вызывающим; после отдачи нужно вызвать release.
+     * Между загрузкой и закреплением файл могут вытеснить — тогда он скачивается заново.
+     */
+    private Path fetch(String key, String name) throws IOException {
+        Path file = root.resolve(name);
+        for (int attempt = 0; attempt < 3; attempt++) {
+            synchronized (entries) {
+                if (entries.get(name) != null && Files.exists(file)) {
+                    pins.merge(name, 1, Integer::sum); // Попадание: get обновил порядок обращений
+                    return file;
+                }
+            }
+            awaitDownload(key, name, file);
+        }
+        throw new IOException("Объект вытесняется из кэша быстрее, чем отдается: " + key);
+    }
+
+    private void release(String name) {
+        boolean delete;
+        synchronized (entries) {
+            Integer count = pins.merge(name, -1, Integer::sum);
+            if (count != null && count > 0) {
+                return;
+            }
+            pins.remove(name);
+            delete = doomed.remove(name);
+        }
+        if (delete) {
+            deleteQuietly(root.resolve(name));
+        }
+    }
+
+    private void awaitDownload(String key, String name, Path file) throws IOException {
+        CompletableFuture<Path> own = new CompletableFuture<>();
+        CompletableFuture<Path> pending = inFlight.putIfAbsent(name, own);
+        if (pending == null) {
+            try {
+                own.complete(download(key, name, file));
+            } catch (RuntimeException | IOException e) {
+                own.completeExceptionally(e);
+            } finally {
+                inFlight.remove(name);
+            }
+            pending = own;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Загрузка объекта прервана: " + key, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new UncheckedIOException(new IOException(e.getCause()));
+        }
+    }
+
+    private Path download(String key, String name, Path file) throws IOException {
+        Path tmp = root.resolve(name + "." + UUID.randomUUID() + TMP_SUFFIX);
+        try {
+            GetObjectResponse object = r2StorageService.downloadToFile(key, tmp);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            long size = object.contentLength() != null ? object.contentLength() : Files.size(file);
+            synchronized (entries) {
+                doomed.remove(name); // Новый файл на месте удаленного из кэша во время отдачи
+                Long previous = entries.put(name, size);
+                totalBytes += size - (previous != null ? previous : 0);
+                evictOverLimit(name);
+            }
+            return file;
+        } finally {
+            deleteQuietly(tmp);
+        }
+    }
+
+    // Вызывается под блокировкой entries; только что добавленный (added) и закрепленные файлы не вытесняются
+    private void evictOverLimit(String added) {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && entries.size() > 1 && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (eldest.getKey().equals(added) || pins.containsKey(eldest.getKey())) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= eldest.getValue();
+            deleteQuietly(root.resolve(eldest.getKey()));
+        }
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) value = value.substring(2);
+            if (value.equals("*") || value.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Разбирает заголовок Range: {start, end} для одного диапазона, пустой массив — отдать объект целиком
+     * (несколько диапазонов или непонятный формат), null — диапазон невыполним (416).
+     */
+    private static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (from.isEmpty()) { // bytes=-N: последние N байт
+                long suffix = Long.parseLong(to);
+                if (suffix <= 0) return null;
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(from);
+                end = to.isEmpty() ? size - 1 : Math.min(Long.parseLong(to), size - 1);
+            }
+            if (start >= size || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Не удалось удалить файл кэша " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -1,62 +1,145 @@
 package com.example.tennis.kz.service;
 
 import com.example.tennis.kz.exception.BadRequestException; // Импорт
+import com.example.tennis.kz.model.response.PresignedUrlResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException; // Импорт
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 public class R2StorageService {
 
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
+    private final S3Presigner s3Presigner;
 
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
 
-    public String uploadFile(MultipartFile file) throws IOException {
-        if (file == null || file.isEmpty()) {
-            throw new BadRequestException("Файл для загрузки не может быть пустым.");
+    public String newKey(String originalFilename) {
+        // Имя файла попадает в ключ и в URL, поэтому оставляются только безопасные символы
+        String name = originalFilename == null || originalFilename.isBlank()
+                ? "file" : originalFilename.replaceAll("[^A-Za-z0-9._-]", "_");
+        // Окончание "_w{число}" зарезервировано за уменьшенными копиями (NewsImageDerivatives)
+        name = name.replaceAll("_w(\\d+)$", "-w$1");
+        return UUID.randomUUID().toString() + "_" + name;
+    }
+
+    /** Подписанная ссылка на чтение объекта; байты идут клиенту напрямую из R2. */
+    public PresignedUrlResponse presignDownload(String key, Duration ttl) {
+        if (key == null || key.trim().isEmpty()) {
+            throw new BadRequestException("Ключ файла для скачивания не может быть пустым.");
+        }
+        PresignedGetObjectRequest presigned = s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(ttl)
+                .getObjectRequest(request -> request.bucket(bucketName).key(key))
+                .build());
+        return PresignedUrlResponse.builder()
+                .key(key)
+                .url(presigned.url().toString())
+                .method("GET")
+                .signedHeaders(Map.of())
+                .expiresAt(presigned.expiration())
+                .build();
+    }
+
+    /**
+     * Подписанная ссылка на загрузку. Тип и длина входят в подпись, так что клиент не сможет загрузить
+     * под этим ключом файл другого размера или типа.
+     */
+    public PresignedUrlResponse presignUpload(String key, String contentType, long contentLength, Duration ttl) {
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(ttl)
+                .putObjectRequest(request -> request.bucket(bucketName).key(key)
+                        .contentType(contentType).contentLength(contentLength))
+                .build());
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : presigned.signedHeaders().entrySet()) {
+            if (!header.getKey().equalsIgnoreCase("host")) { // Host клиент выставит сам
+                headers.put(header.getKey(), String.join(",", header.getValue()));
+            }
+        }
+        return PresignedUrlResponse.builder()
+                .key(key)
+                .url(presigned.url().toString())
+                .method("PUT")
+                .signedHeaders(headers)
+                .expiresAt(presigned.expiration())
+                .build();
+    }
+
+    /** Метаданные объекта; NoSuchElementException, если объекта нет. */
+    public HeadObjectResponse headFile(String key) {
+        if (key == null || key.trim().isEmpty()) {
+            throw new BadRequestException("Ключ файла не может быть пустым.");
         }
-        // Проверка типа контента, если она должна быть здесь, а не в вызывающем сервисе:
-        // String contentType = file.getContentType();
-        // if (contentType == null || !contentType.startsWith("image/")) { // Пример для изображений
-        //     throw new BadRequestException("Поддерживаются только файлы изображений. Получен тип: " + contentType);
-        // }
+        try {
+            return s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchElementException("Файл не найден в хранилище по ключу: " + key, e);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new NoSuchElementException("Файл не найден в хранилище по ключу: " + key, e);
+            }
+            System.err.println("S3 Error reading metadata of file '" + key + "': " + e.getMessage());
+            throw new RuntimeException("Ошибка при обращении к хранилищу: " + e.getMessage(), e);
+        }
+    }
 
+    /**
+     * Загружает подготовленный файл через асинхронный клиент, не занимая вызывающий поток.
+     * Крупные файлы клиент сам режет на части и грузит их параллельно (multipart).
+     */
+    public CompletableFuture<String> uploadFileAsync(String key, Path source, String contentType) {
+        return uploadAsync(key, AsyncRequestBody.fromFile(source), contentType);
+    }
 
-        String key = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
+    public CompletableFuture<String> uploadBytesAsync(String key, byte[] bytes, String contentType) {
+        return uploadAsync(key, AsyncRequestBody.fromBytes(bytes), contentType);
+    }
 
+    private CompletableFuture<String> uploadAsync(String key, AsyncRequestBody body, String contentType) {
+        if (key == null || key.trim().isEmpty()) {
+            throw new BadRequestException("Ключ файла для загрузки не может быть пустым.");
+        }
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                 .bucket(bucketName)
                 .key(key)
-                .contentType(file.getContentType())
+                .contentType(contentType)
                 .build();
 
-        try (InputStream inputStream = file.getInputStream()) {
-            s3Client.putObject(putObjectRequest,
-                    RequestBody.fromInputStream(inputStream, file.getSize()));
-            return key;
-        } catch (S3Exception e) {
-            // Ошибки S3 (например, проблемы с доступом, конфигурацией) указывают на серверную проблему.
-            System.err.println("S3 Error uploading file '" + key + "': " + e.awsErrorDetails().errorMessage());
-            // Преобразуем в RuntimeException, что приведет к HTTP 500 через GlobalExceptionHandler
-            throw new RuntimeException("Ошибка при загрузке файла в хранилище: " + e.getMessage(), e);
-        } catch (IOException e) {
-            // Ошибки чтения из MultipartFile
-            System.err.println("IO Error processing upload for file '" + (file.getOriginalFilename()) + "': " + e.getMessage());
-            throw e; // Перебрасываем IOException, GlobalExceptionHandler может его обработать как 500
-        }
+        return s3AsyncClient.putObject(putObjectRequest, body)
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return key;
+                    }
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    String message = cause instanceof S3Exception s3 && s3.awsErrorDetails() != null
+                            ? s3.awsErrorDetails().errorMessage() : cause.getMessage();
+                    System.err.println("S3 Error uploading file '" + key + "': " + message);
+                    throw new RuntimeException("Ошибка при загрузке файла в хранилище: " + message, cause);
+                });
     }
 
     public ResponseInputStream<GetObjectResponse> downloadFile(String key) {
@@ -81,6 +164,26 @@ public class R2StorageService {
         }
     }
 
+    /** Скачивает объект прямо в файл (путь не должен существовать), без промежуточного InputStream в вызывающем коде. */
+    public GetObjectResponse downloadToFile(String key, Path target) {
+        if (key == null || key.trim().isEmpty()) {
+            throw new BadRequestException("Ключ файла для скачивания не может быть пустым.");
+        }
+        try {
+            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build();
+            return s3Client.getObject(getObjectRequest, ResponseTransformer.toFile(target));
+        } catch (NoSuchKeyException e) {
+            System.err.println("File not found in R2: " + key);
+            throw new NoSuchElementException("Файл не найден в хранилище по ключу: " + key, e);
+        } catch (S3Exception e) {
+            System.err.println("S3 Error downloading file '" + key + "': " + e.awsErrorDetails().errorMessage());
+            throw new RuntimeException("Ошибка при скачивании файла из хранилища: " + e.getMessage(), e);
+        }
+    }
+
     public void deleteFile(String key) {
         if (key == null || key.trim().isEmpty()) {
             throw new BadRequestException("Ключ файла для удаления не может быть пустым.");
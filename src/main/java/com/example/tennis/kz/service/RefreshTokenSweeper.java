@@ -0,0 +1,38 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.repository.RefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Периодически удаляет истекшие refresh-токены пачками ограниченного размера,
+ * каждая пачка — отдельная короткая транзакция, чтобы не держать блокировки на всей таблице.
+ */
+@Component
+@RequiredArgsConstructor
+public class RefreshTokenSweeper {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${security.refresh-token.sweep-chunk-size:1000}")
+    private int chunkSize;
+
+    @Scheduled(initialDelayString = "${security.refresh-token.sweep-initial-delay-ms:60000}",
+            fixedDelayString = "${security.refresh-token.sweep-interval-ms:3600000}")
+    public void sweepExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = refreshTokenRepository.deleteExpiredChunk(now, chunkSize);
+            total += deleted;
+        } while (deleted == chunkSize);
+        if (total > 0) {
+            System.out.println("Удалено истекших refresh-токенов: " + total);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.tennis.kz.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 от токенов: ключи кэшей и значения, которые можно хранить вместо самих токенов.
+ */
+public final class TokenHashes {
+
+    private TokenHashes() {
+    }
+
+    /** Hex-строка SHA-256 от UTF-8 байтов токена (64 символа). */
+    public static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен в этой JVM", e); // Обязателен для любой Java SE
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.model.Tournament;
+import com.example.tennis.kz.model.TournamentTier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Таблицы очков уровней турниров, собранные один раз при старте.
+ * <p>
+ * Для каждого уровня таблица int[] индексируется достигнутым раундом собственной сетки уровня, последний
+ * элемент — победитель. Шкала долей берется из TournamentTier.defaultSchedule или из конфигурации, например:
+ * tournament.points.schedule.MASTERS=1.0,0.6,0.36,0.19,0.1,0.055,0.01 (доли от победителя к первому кругу).
+ */
+@Service
+public class TournamentPointsTable {
+
+    private static final String SCHEDULE_PROPERTY_PREFIX = "tournament.points.schedule.";
+
+    private final Map<TournamentTier, double[]> schedules = new EnumMap<>(TournamentTier.class);
+    private final Map<TournamentTier, int[]> tables = new EnumMap<>(TournamentTier.class);
+
+    public TournamentPointsTable(Environment environment) {
+        for (TournamentTier tier : TournamentTier.values()) {
+            double[] schedule = configuredSchedule(environment, tier);
+            schedules.put(tier, schedule);
+            tables.put(tier, buildTable(tier, schedule, Tournament.totalRounds(tier)));
+            if (environment.containsProperty(SCHEDULE_PROPERTY_PREFIX + tier.name())) {
+                System.out.println("Шкала очков для " + tier + " переопределена: " + Arrays.toString(tables.get(tier)));
+            }
+        }
+    }
+
+    /** Очки за достигнутый раунд в собственной сетке уровня — без ветвлений и аллокаций. */
+    public int pointsForRound(TournamentTier tier, int roundReached) {
+        int[] table = tables.get(tier);
+        if (roundReached <= 0) return 0;
+        return table[Math.min(roundReached, table.length - 1)];
+    }
+
+    public int getPointsForRound(TournamentTier tier, int roundReached, int totalRoundsInTournament) {
+        if (totalRoundsInTournament <= 0) return 0;
+        if (totalRoundsInTournament == tables.get(tier).length - 2) {
+            return pointsForRound(tier, roundReached);
+        }
+        // Нестандартная для уровня сетка: считаем по той же шкале без кэша
+        if (roundReached <= 0) return 0;
+        return points(tier, schedules.get(tier), Math.min(roundReached, totalRoundsInTournament + 1), totalRoundsInTournament);
+    }
+
+    /** Копия таблицы: индекс — достигнутый раунд, последний элемент — победитель. */
+    public int[] getPointsTable(TournamentTier tier) {
+        return tables.get(tier).clone();
+    }
+
+    private static double[] configuredSchedule(Environment environment, TournamentTier tier) {
+        String value = environment.getProperty(SCHEDULE_PROPERTY_PREFIX + tier.name());
+        if (value == null || value.isBlank()) {
+            return TournamentTier.defaultSchedule();
+        }
+        double[] schedule;
+        try {
+            schedule = Arrays.stream(value.split(","))
+                    .map(String::trim)
+                    .mapToDouble(Double::parseDouble)
+                    .toArray();
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Некорректная шкала очков для " + tier + ": '" + value + "'", e);
+        }
+        if (schedule.length == 0) {
+            throw new IllegalStateException("Шкала очков для " + tier + " не может быть пустой.");
+        }
+        if (Arrays.stream(schedule).anyMatch(share -> share < 0)) {
+            throw new IllegalStateException("Доли шкалы очков для " + tier + " не могут быть отрицательными: '" + value + "'");
+        }
+        return schedule;
+    }
+
+    private static int[] buildTable(TournamentTier tier, double[] shares, int totalRounds) {
+        int[] table = new int[totalRounds + 2];
+        for (int round = 1; round <= totalRounds + 1; round++) {
+            table[round] = points(tier, shares, round, totalRounds);
+        }
+        return table;
+    }
+
+    private static int points(TournamentTier tier, double[] shares, int roundReached, int totalRounds) {
+        int fromWinner = totalRounds + 1 - roundReached; // 0 - победитель, 1 - финалист, ...
+        if (fromWinner < shares.length) {
+            return (int) Math.round(tier.getTotalPoints() * shares[fromWinner]);
+        }
+        // Можно дать минимальные очки за участие, если это предусмотрено (например, для Futures)
+        if (roundReached == 1 && totalRounds > 1) {
+            return (int) Math.round(tier.getTotalPoints() * tier.getFirstRoundShare());
+        }
+        return 0;
+    }
+}
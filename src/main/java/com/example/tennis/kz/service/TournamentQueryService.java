@@ -2,7 +2,9 @@ package com.example.tennis.kz.service;
 
 import com.example.tennis.kz.exception.BadRequestException; // Импорт
 import com.example.tennis.kz.model.Match;
+import com.example.tennis.kz.model.Tournament;
 import com.example.tennis.kz.model.TournamentRegistration;
+import com.example.tennis.kz.model.response.BracketMatchRow;
 import com.example.tennis.kz.model.response.MatchDto;
 import com.example.tennis.kz.repository.MatchRepository;
 import com.example.tennis.kz.repository.TournamentRepository;
@@ -11,9 +13,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException; // Импорт
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -27,72 +29,71 @@ public class TournamentQueryService {
         if (tournamentId == null) {
             throw new BadRequestException("ID турнира не может быть null.");
         }
-        if (!tournamentRepository.existsById(tournamentId)) {
-            throw new NoSuchElementException("Турнир с ID: " + tournamentId + " не найден.");
+        List<BracketMatchRow> rows = matchRepository.findBracketRows(tournamentId);
+        // Существование турнира проверяем отдельным запросом только когда сетка пуста
+        if (rows.isEmpty()) {
+            if (!tournamentRepository.existsById(tournamentId)) {
+                throw new NoSuchElementException("Турнир с ID: " + tournamentId + " не найден.");
+            }
+            return new ArrayList<>();
         }
-        List<Match> matches = matchRepository.findByTournamentIdOrderByRoundNumberAscMatchNumberInBracketAsc(tournamentId);
 
-        return matches.stream()
-                .map(this::convertToMatchDTO) // convertToMatchDTO может вернуть null, это будет отфильтровано если необходимо выше
-                .collect(Collectors.toList());
-    }
+        BracketMatchRow first = rows.get(0);
+        int totalRounds = Tournament.totalRounds(first.tier());
+        boolean doubles = first.category() != null && first.category().isDoubles();
 
-    private MatchDto convertToMatchDTO(Match match) {
-        if (match == null) {
-            // Это не должно происходить, если список matches из репозитория не содержит null.
-            // Если это все же произошло, это может указывать на проблему с данными.
-            // Вместо возврата null можно было бы выбросить IllegalStateException,
-            // но для DTO-маппера возврат null при null-входе - обычная практика.
-            return null;
+        List<MatchDto> result = new ArrayList<>(rows.size());
+        for (BracketMatchRow row : rows) {
+            result.add(convertToMatchDTO(row, totalRounds, doubles));
         }
+        return result;
+    }
 
+    private MatchDto convertToMatchDTO(BracketMatchRow row, int totalRounds, boolean doubles) {
         MatchDto.MatchDtoBuilder builder = MatchDto.builder()
-                .id(match.getId())
-                .roundNumber(match.getRoundNumber())
-                .roundName(match.getRoundName())
-                .matchNumberInBracket(match.getMatchNumberInBracket())
-                .score(match.getScore())
-                .status(match.getStatus())
-                .scheduledTime(match.getScheduledTime())
-                .completedTime(match.getCompletedTime())
-                .nextMatchSlot(match.getNextMatchSlot());
+                .id(row.id())
+                .roundNumber(row.roundNumber())
+                .roundName(row.roundNumber() != null ? Match.roundName(row.roundNumber(), totalRounds) : "N/A")
+                .matchNumberInBracket(row.matchNumberInBracket())
+                .score(row.score())
+                .status(row.status())
+                .scheduledTime(row.scheduledTime())
+                .completedTime(row.completedTime())
+                .nextMatchSlot(row.nextMatchSlot())
+                .nextMatchId(row.nextMatchId());
 
-        if (match.getNextMatch() != null) {
-            builder.nextMatchId(match.getNextMatch().getId());
+        String p1Name = null;
+        if (row.participant1RegistrationId() != null) {
+            p1Name = TournamentRegistration.formatParticipantName(
+                    row.participant1UserInfoId() != null, row.participant1LastName(), row.participant1FirstName(),
+                    doubles && row.participant1PartnerInfoId() != null, row.participant1PartnerLastName(), row.participant1PartnerFirstName());
+            builder.participant1RegistrationId(row.participant1RegistrationId())
+                    .participant1Name(p1Name)
+                    .participant1SeedNumber(row.participant1SeedNumber())
+                    .participant1Player1UserId(row.participant1UserId())
+                    .participant1Player2UserId(row.participant1PartnerId());
         }
 
-        TournamentRegistration p1Reg = match.getParticipant1();
-        if (p1Reg != null) {
-            builder.participant1RegistrationId(p1Reg.getId())
-                    .participant1Name(p1Reg.getParticipantName())
-                    .participant1SeedNumber(p1Reg.getSeedNumber());
-            if (p1Reg.getUser() != null) {
-                builder.participant1Player1UserId(p1Reg.getUser().getId());
-            }
-            if (p1Reg.getPartner() != null) {
-                builder.participant1Player2UserId(p1Reg.getPartner().getId());
-            }
-        }
-
-        TournamentRegistration p2Reg = match.getParticipant2();
-        if (p2Reg != null) {
-            builder.participant2RegistrationId(p2Reg.getId())
-                    .participant2Name(p2Reg.getParticipantName())
-                    .participant2SeedNumber(p2Reg.getSeedNumber());
-            if (p2Reg.getUser() != null) {
-                builder.participant2Player1UserId(p2Reg.getUser().getId());
-            }
-            if (p2Reg.getPartner() != null) {
-                builder.participant2Player2UserId(p2Reg.getPartner().getId());
-            }
+        String p2Name = null;
+        if (row.participant2RegistrationId() != null) {
+            p2Name = TournamentRegistration.formatParticipantName(
+                    row.participant2UserInfoId() != null, row.participant2LastName(), row.participant2FirstName(),
+                    doubles && row.participant2PartnerInfoId() != null, row.participant2PartnerLastName(), row.participant2PartnerFirstName());
+            builder.participant2RegistrationId(row.participant2RegistrationId())
+                    .participant2Name(p2Name)
+                    .participant2SeedNumber(row.participant2SeedNumber())
+                    .participant2Player1UserId(row.participant2UserId())
+                    .participant2Player2UserId(row.participant2PartnerId());
         }
 
-        TournamentRegistration winnerReg = match.getWinner();
-        if (winnerReg != null) {
-            builder.winnerRegistrationId(winnerReg.getId())
-                    .winnerName(winnerReg.getParticipantName());
+        // Победитель всегда один из участников матча, поэтому отдельный JOIN для его имени не нужен
+        Long winnerId = row.winnerRegistrationId();
+        if (winnerId != null) {
+            builder.winnerRegistrationId(winnerId)
+                    .winnerName(winnerId.equals(row.participant1RegistrationId()) ? p1Name
+                            : winnerId.equals(row.participant2RegistrationId()) ? p2Name : null);
         }
 
         return builder.build();
     }
-}
\ No newline at end of file
+}
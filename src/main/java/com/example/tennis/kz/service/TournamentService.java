@@ -3,11 +3,16 @@ package com.example.tennis.kz.service;
 import com.example.tennis.kz.exception.BadRequestException; // Наш кастомный BadRequestException
 import com.example.tennis.kz.model.*;
 import com.example.tennis.kz.model.request.TournamentCreationRequestDTO;
+import com.example.tennis.kz.model.response.CursorPageResponse;
+import com.example.tennis.kz.model.response.PageCursor;
+import com.example.tennis.kz.repository.MatchParticipantJdbcRepository;
+import com.example.tennis.kz.repository.MatchRepository;
 import com.example.tennis.kz.repository.TournamentRegistrationRepository;
 import com.example.tennis.kz.repository.TournamentRepository;
 // import jakarta.persistence.EntityNotFoundException; // Заменяем
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,6 +31,10 @@ public class TournamentService {
 
     private final TournamentRepository tournamentRepository;
     private final TournamentRegistrationRepository tournamentRegistrationRepository;
+    private final BracketCache bracketCache;
+    private final MatchRepository matchRepository;
+    private final MatchParticipantJdbcRepository matchParticipantJdbcRepository;
+    private final UserStatsService userStatsService;
 
     @Transactional
     public Tournament createTournamentFromDto(TournamentCreationRequestDTO dto, User author) {
@@ -120,6 +129,17 @@ public class TournamentService {
         return tournamentRepository.findAll(pageable);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageResponse<Tournament> scrollTournaments(String cursor, int size, boolean withTotal) {
+        Pageable limit = PageRequest.of(0, CursorPageResponse.fetchSize(size));
+        PageCursor after = PageCursor.decode(cursor);
+        List<Tournament> rows = after == null
+                ? tournamentRepository.scrollFirst(limit)
+                : tournamentRepository.scrollAfter(after.keyAsDateTime(), after.id(), limit);
+        Long total = withTotal ? tournamentRepository.count() : null;
+        return CursorPageResponse.of(rows, size, row -> PageCursor.encode(row.getCreatedAt(), row.getId()), row -> row, total);
+    }
+
     @Transactional
     public Tournament updateTournamentParams(
             Long id, String description, LocalDate startDate, LocalDate endDate, LocalTime startTime,
@@ -204,7 +224,11 @@ public class TournamentService {
         }
         // Дополнительные бизнес-правила (например, запрет удаления активных турниров) могут быть здесь.
         // Каскадное удаление настроено в Tournament entity.
+        // Матчи удаляются вместе с турниром, поэтому их результаты вычитаются из сводной статистики
+        userStatsService.revertMatches(matchRepository.findByTournamentIdOrderByRoundNumberAscMatchNumberInBracketAsc(id));
+        matchParticipantJdbcRepository.deleteByTournamentId(id); // Строки ссылаются на матчи по FK
         tournamentRepository.deleteById(id); // Используем deleteById для эффективности, т.к. сущность уже проверена
+        bracketCache.evict(id);
     }
 
     @Transactional(readOnly = true)
@@ -3,21 +3,21 @@ package com.example.tennis.kz.service;
 
 import com.example.tennis.kz.exception.BadRequestException; // Наш кастомный BadRequestException
 import com.example.tennis.kz.model.*;
+import com.example.tennis.kz.model.response.CursorPageResponse;
 import com.example.tennis.kz.model.response.MatchHistoryDTO;
+import com.example.tennis.kz.model.response.PageCursor;
 import com.example.tennis.kz.model.response.UserStatsDTO;
 import com.example.tennis.kz.repository.MatchRepository;
 import com.example.tennis.kz.repository.UserRepository;
 // import jakarta.persistence.EntityNotFoundException; // Будет заменен на NoSuchElementException
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Arrays; // Импортируем Arrays для EnumMap initialization
-import java.util.EnumMap;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException; // Стандартный NoSuchElementException
 
 @Service
@@ -27,6 +27,7 @@ public class UserActivityService {
     private final MatchRepository matchRepository;
     private final UserRepository userRepository;
     private final UserService userService; // Для получения текущего аутентифицированного пользователя
+    private final UserStatsService userStatsService;
 
     @Transactional(readOnly = true)
     public Page<MatchHistoryDTO> getCurrentUserMatchHistory(Pageable pageable) {
@@ -60,6 +61,44 @@ public class UserActivityService {
         return matchesPage.map(match -> convertToMatchHistoryDTO(match, user.getId()));
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageResponse<MatchHistoryDTO> scrollCurrentUserMatchHistory(String cursor, int size, boolean withTotal) {
+        User currentUser = userService.getAuthenticatedUser();
+        if (currentUser == null || currentUser.getId() == null) {
+            throw new IllegalStateException("Не удалось получить данные аутентифицированного пользователя.");
+        }
+        return scrollMatchHistory(currentUser.getId(), cursor, size, withTotal);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageResponse<MatchHistoryDTO> scrollUserMatchHistory(Long userId, String cursor, int size, boolean withTotal) {
+        if (userId == null) {
+            throw new BadRequestException("ID пользователя не может быть null.");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new NoSuchElementException("Пользователь с ID: " + userId + " не найден.");
+        }
+        return scrollMatchHistory(userId, cursor, size, withTotal);
+    }
+
+    // Порядок: completedTime desc (незавершенные в конце), затем id desc
+    private CursorPageResponse<MatchHistoryDTO> scrollMatchHistory(Long userId, String cursor, int size, boolean withTotal) {
+        Pageable limit = PageRequest.of(0, CursorPageResponse.fetchSize(size));
+        PageCursor after = PageCursor.decode(cursor);
+        List<Match> matches;
+        if (after == null) {
+            matches = matchRepository.scrollMatchesByUserId(userId, limit);
+        } else if (after.keyAsDateTime() == null) {
+            matches = matchRepository.scrollIncompleteMatchesByUserIdAfter(userId, after.id(), limit);
+        } else {
+            matches = matchRepository.scrollMatchesByUserIdAfter(userId, after.keyAsDateTime(), after.id(), limit);
+        }
+        Long total = withTotal ? matchRepository.countMatchesByUserId(userId) : null;
+        return CursorPageResponse.of(matches, size,
+                match -> PageCursor.encode(match.getCompletedTime(), match.getId()),
+                match -> convertToMatchHistoryDTO(match, userId), total);
+    }
+
     private MatchHistoryDTO convertToMatchHistoryDTO(Match match, Long perspectiveUserId) {
         // perspectiveUserId здесь предполагается non-null после проверок в публичных методах
         if (match == null) {
@@ -146,69 +185,7 @@ public class UserActivityService {
     }
 
     private UserStatsDTO calculateUserStats(Long userId) {
-        // userId здесь должен быть non-null и существующим
-        List<Match> allUserMatches = matchRepository.findAllMatchesByUserId(userId);
-        List<Match> wonMatches = matchRepository.findWonMatchesByUserId(userId);
-
-        UserStatsDTO stats = new UserStatsDTO();
-
-        long playedCount = allUserMatches.stream()
-                .filter(m -> m.getStatus() == MatchStatus.COMPLETED || m.getStatus() == MatchStatus.WALKOVER)
-                .count();
-        stats.setTotalMatchesPlayed(playedCount);
-        stats.setTotalWins(wonMatches.size());
-        stats.setTotalLosses(playedCount > wonMatches.size() ? playedCount - wonMatches.size() : 0);
-
-        Map<TournamentTier, Long> winsByTier = new EnumMap<>(TournamentTier.class);
-        // Инициализируем карту нулями для всех существующих тиров
-        Arrays.stream(TournamentTier.values()).forEach(tier -> winsByTier.put(tier, 0L));
-
-
-        long singlesWinsCount = 0;
-        long doublesWinsCount = 0;
-
-        for (Match wonMatch : wonMatches) {
-            Tournament tournament = wonMatch.getTournament();
-            if (tournament == null) continue; // Пропускаем матчи без турнира, если такое возможно
-
-            if (tournament.getTier() != null) {
-                winsByTier.merge(tournament.getTier(), 1L, Long::sum);
-            }
-            if (tournament.getCategory() != null) {
-                if (tournament.getCategory().isSingles()) {
-                    singlesWinsCount++;
-                } else if (tournament.getCategory().isDoubles()) {
-                    doublesWinsCount++;
-                }
-            }
-        }
-        stats.setWinsByTier(winsByTier);
-        stats.setSinglesWins(singlesWinsCount);
-        stats.setDoublesWins(doublesWinsCount);
-
-        long singlesMatchesPlayedCount = 0;
-        long doublesMatchesPlayedCount = 0;
-
-        for (Match match : allUserMatches) {
-            if (match.getStatus() != MatchStatus.COMPLETED && match.getStatus() != MatchStatus.WALKOVER) {
-                continue;
-            }
-            Tournament tournament = match.getTournament();
-            if (tournament == null) continue; // Пропускаем матчи без турнира
-
-            if (tournament.getCategory() != null) {
-                if (tournament.getCategory().isSingles()) {
-                    singlesMatchesPlayedCount++;
-                } else if (tournament.getCategory().isDoubles()) {
-                    doublesMatchesPlayedCount++;
-                }
-            }
-        }
-        stats.setSinglesMatchesPlayed(singlesMatchesPlayedCount);
-        stats.setDoublesMatchesPlayed(doublesMatchesPlayedCount);
-
-
-
-        return stats;
+        // userId здесь должен быть non-null и существующим; счетчики читаются из сводки user_stats
+        return userStatsService.getStats(userId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,181 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.model.response.UserNameRow;
+import com.example.tennis.kz.model.response.UserSearchResultDto;
+import com.example.tennis.kz.repository.UserRepository;
+import com.example.tennis.kz.repository.UserSearchJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Поиск игроков по имени и фамилии (подбор партнера, typeahead).
+ * <p>
+ * Имя и запрос приводятся к одной форме: нижний регистр, казахские буквы сворачиваются в русские
+ * (Ә→А, Қ→К, Ң→Н, Ө→О, Ұ/Ү→У, І→И, ...), диакритика снимается, кириллица транслитерируется в латиницу.
+ * Поэтому "Әлихан", "Алихан" и "Alikhan" находят друг друга. Совпадения ищутся по триграммам в user_search
+ * и ранжируются по word_similarity, карточки результатов читаются одной JPQL-проекцией.
+ * <p>
+ * Пока pg_trgm не подтвержден при старте (или недоступен вовсе), работает прежний поиск по началу имени
+ * или фамилии, чтобы запросы не падали на несуществующем операторе.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserSearchService {
+
+    // Казахские буквы -> ближайшие русские
+    private static final String KAZAKH = "әғқңөұүһі";
+    private static final String RUSSIAN = "агкноуухи";
+
+    private static final Map<Character, String> LATIN = new HashMap<>();
+
+    static {
+        LATIN.put('ı', "i"); // Казахская латиница
+        String[][] latin = {
+                {"а", "a"}, {"б", "b"}, {"в", "v"}, {"г", "g"}, {"д", "d"}, {"е", "e"}, {"ж", "zh"}, {"з", "z"},
+                {"и", "i"}, {"к", "k"}, {"л", "l"}, {"м", "m"}, {"н", "n"}, {"о", "o"}, {"п", "p"}, {"р", "r"},
+                {"с", "s"}, {"т", "t"}, {"у", "u"}, {"ф", "f"}, {"х", "kh"}, {"ц", "ts"}, {"ч", "ch"}, {"ш", "sh"},
+                {"щ", "sch"}, {"ъ", ""}, {"ы", "y"}, {"ь", ""}, {"э", "e"}, {"ю", "yu"}, {"я", "ya"}};
+        for (String[] pair : latin) {
+            LATIN.put(pair[0].charAt(0), pair[1]);
+        }
+    }
+
+    private final UserSearchJdbcRepository userSearchJdbcRepository;
+    private final UserRepository userRepository;
+
+    @Value("${user-search.similarity-threshold:0.3}")
+    private double similarityThreshold;
+
+    @Value("${user-search.backfill-chunk-size:1000}")
+    private int backfillChunkSize;
+
+    @Value("${user-search.max-total:1000}")
+    private long maxTotal;
+
+    private volatile boolean trigramAvailable;
+
+    /**
+     * Приводит имя или запрос к поисковой форме. Й и Ё раскладываются через NFD и теряют надстрочный знак,
+     * так что сворачиваются в И и Е до транслитерации.
+     */
+    public static String normalize(String text) {
+        if (text == null || text.isBlank()) {
+            return "";
+        }
+        String stripped = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "");
+        StringBuilder result = new StringBuilder(stripped.length() + 8);
+        for (int i = 0; i < stripped.length(); i++) {
+            char c = stripped.charAt(i);
+            int kazakh = KAZAKH.indexOf(c);
+            if (kazakh >= 0) {
+                c = RUSSIAN.charAt(kazakh); // Казахская буква сначала становится русской, затем транслитерируется
+            }
+            String latin = LATIN.get(c);
+            if (latin != null) {
+                result.append(latin);
+            } else {
+                result.append(Character.isLetterOrDigit(c) ? c : ' ');
+            }
+        }
+        return result.toString().trim().replaceAll("\\s+", " ");
+    }
+
+    public static String searchText(String firstName, String lastName) {
+        return normalize((firstName != null ? firstName : "") + " " + (lastName != null ? lastName : ""));
+    }
+
+    /** Обновляет поисковую строку пользователя в текущей транзакции. */
+    public void index(Long userId, String firstName, String lastName) {
+        if (userId == null) {
+            return;
+        }
+        userSearchJdbcRepository.upsert(List.<Object[]>of(new Object[]{userId, searchText(firstName, lastName)}));
+    }
+
+    public void remove(Collection<Long> userIds) {
+        userSearchJdbcRepository.deleteByUserIds(userIds);
+    }
+
+    public void removeAll() {
+        userSearchJdbcRepository.deleteAll();
+    }
+
+    public Page<UserSearchResultDto> search(String query, Pageable pageable) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        if (!trigramAvailable) {
+            return userRepository.searchByNamePrefix(query.trim(), pageable);
+        }
+        UserSearchJdbcRepository.SearchPage page = userSearchJdbcRepository.search(
+                normalized, similarityThreshold, pageable.getPageSize(), pageable.getOffset(), Math.max(1, maxTotal));
+        if (page.userIds().isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, page.total());
+        }
+
+        Map<Long, UserSearchResultDto> byId = userRepository.findSearchResults(page.userIds()).stream()
+                .collect(Collectors.toMap(UserSearchResultDto::getId, Function.identity()));
+        List<UserSearchResultDto> ordered = new ArrayList<>(page.userIds().size());
+        for (Long id : page.userIds()) {
+            UserSearchResultDto dto = byId.get(id);
+            if (dto != null) {
+                ordered.add(dto);
+            }
+        }
+        return new PageImpl<>(ordered, pageable, page.total());
+    }
+
+    // Триграммный индекс и первичное заполнение user_search для пользователей, созданных до ее появления
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareSearchIndex() {
+        try {
+            userSearchJdbcRepository.ensureIndexes();
+            trigramAvailable = userSearchJdbcRepository.isTrigramAvailable();
+            if (!trigramAvailable) {
+                System.err.println("Расширение pg_trgm недоступно, поиск пользователей работает по началу имени.");
+            }
+            if (userSearchJdbcRepository.isEmpty()) {
+                int indexed = rebuild();
+                if (indexed > 0) {
+                    System.out.println("user_search заполнена по существующим пользователям: " + indexed + " строк.");
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось подготовить поиск пользователей: " + e.getMessage());
+        }
+    }
+
+    /** Пересобирает поисковые строки всех пользователей пачками по id. Возвращает число записанных строк. */
+    public int rebuild() {
+        int size = Math.max(1, backfillChunkSize);
+        long afterId = 0;
+        int indexed = 0;
+        while (true) {
+            List<UserNameRow> rows = userRepository.findNamesAfter(afterId, PageRequest.of(0, size));
+            if (rows.isEmpty()) {
+                return indexed;
+            }
+            List<Object[]> batch = new ArrayList<>(rows.size());
+            for (UserNameRow row : rows) {
+                batch.add(new Object[]{row.id(), searchText(row.firstName(), row.lastName())});
+            }
+            userSearchJdbcRepository.upsert(batch);
+            indexed += rows.size();
+            afterId = rows.get(rows.size() - 1).id();
+        }
+    }
+}
@@ -2,14 +2,17 @@ package com.example.tennis.kz.service;
 
 import com.example.tennis.kz.exception.BadRequestException; // Наш кастомный BadRequestException
 import com.example.tennis.kz.model.*;
+import com.example.tennis.kz.model.response.CursorPageResponse;
+import com.example.tennis.kz.model.response.PageCursor;
 import com.example.tennis.kz.model.response.UserSearchResultDto;
 import com.example.tennis.kz.repository.*;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 // import org.hibernate.NonUniqueObjectException; // Будет заменен
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-// import org.springframework.data.domain.PageRequest; // Не используется напрямую здесь
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -19,7 +22,6 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -30,6 +32,24 @@ public class UserService {
     private final ConfirmationTokenService confirmationTokenService;
     private final UserInfoRepository userInfoRepository;
     private final TournamentRegistrationRepository registrationRepository;
+    private final LeaderboardService leaderboardService;
+    private final UserStatsRepository userStatsRepository;
+    private final UserStateCache userStateCache;
+    private final UserSearchService userSearchService;
+    private final UserJdbcRepository userJdbcRepository;
+
+    // created_at — ключ keyset-пагинации пользователей, поэтому старые строки без него заполняются
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCreatedAt() {
+        try {
+            int filled = userJdbcRepository.backfillCreatedAt();
+            if (filled > 0) {
+                System.out.println("Заполнена дата регистрации у " + filled + " пользователей.");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось заполнить users.created_at: " + e.getMessage());
+        }
+    }
 
     public UserDetailsService userDetailsService() {
         return username -> userRepository.findUserByEmail(username)
@@ -42,6 +62,11 @@ public class UserService {
             throw new IllegalStateException("Пользователь не аутентифицирован или аутентификационные данные отсутствуют.");
         }
         Object principal = authentication.getPrincipal();
+        if (principal instanceof JwtPrincipal jwtPrincipal) {
+            // Stateless-режим: в контексте только claims токена, сущность загружается по id
+            return userRepository.findById(jwtPrincipal.getId()).orElseThrow(()
+                    -> new NoSuchElementException(String.format("Пользователь с ID '%d' не найден.", jwtPrincipal.getId())));
+        }
         if (!(principal instanceof User)) {
             // Если principal - это строка "anonymousUser", то это тоже проблема аутентификации
             // Spring Security обычно возвращает 401/403 до этого момента.
@@ -50,7 +75,7 @@ public class UserService {
         return (User) principal;
     }
 
-    public User updateUser(User user, Gender gender, String firstName, String lastName, String phone, Float rating, Integer age) {
+    public User updateUser(User user, Gender gender, String firstName, String lastName, String phone, Float rating, Integer age, City city) {
         if (user == null) {
             throw new BadRequestException("Объект User для обновления не может быть null.");
         }
@@ -81,9 +106,15 @@ public class UserService {
         if (phone != null) userInfo.setPhone(phone);
         if (rating != null) userInfo.setRating(rating);
         if (age != null) userInfo.setAge(age);
+        if (city != null) userInfo.setCity(city);
 
         // userRepository.save(user) сохранит и User и UserInfo благодаря CascadeType.ALL
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        if (firstName != null || lastName != null) {
+            userSearchService.index(saved.getId(), userInfo.getFirstName(), userInfo.getLastName());
+        }
+        leaderboardService.refresh(List.of(saved.getId())); // Имя, пол и город отображаются в рейтинге
+        return saved;
     }
 
     public ResponseEntity<?> confirmEmail(String token) {
@@ -104,6 +135,7 @@ public class UserService {
         }
         user.setEnabled(true);
         userRepository.save(user);
+        userStateCache.evict(user.getId());
         return ResponseEntity.ok("Email успешно подтвержден.");
     }
 
@@ -129,6 +161,7 @@ public class UserService {
         }
 
         userRepository.save(user);
+        userSearchService.index(user.getId(), user.getUserInfo().getFirstName(), user.getUserInfo().getLastName());
         // Отправка токена подтверждения должна происходить только при успешном сохранении
         confirmationTokenService.sendConfirmationToken(user);
         return user;
@@ -159,7 +192,9 @@ public class UserService {
             throw new BadRequestException("Новая роль не может быть null.");
         }
         user.setRole(role);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userStateCache.evict(saved.getId());
+        return saved;
     }
 
     public boolean existsByEmail(String email) {
@@ -211,6 +246,17 @@ public class UserService {
         return userRepository.findAll(pageable);
     }
 
+    public CursorPageResponse<User> scrollUsers(String cursor, int size, boolean withTotal) {
+        Pageable limit = PageRequest.of(0, CursorPageResponse.fetchSize(size));
+        PageCursor after = PageCursor.decode(cursor);
+        List<User> rows = after == null
+                ? userRepository.scrollFirst(limit)
+                : userRepository.scrollAfter(after.keyAsDateTime(), after.id(), limit);
+        Long total = withTotal ? userRepository.count() : null;
+        return CursorPageResponse.of(rows, size, row -> PageCursor.encode(row.getCreatedAt(), row.getId()), row -> row, total);
+    }
+
+    // Триграммный поиск с ранжированием по похожести, см. UserSearchService; сортировка pageable не используется
     public Page<UserSearchResultDto> searchUsersByName(String nameQuery, Pageable pageable) {
         if (pageable == null) {
             throw new BadRequestException("Pageable не может быть null.");
@@ -219,19 +265,7 @@ public class UserService {
         if (nameQuery == null || nameQuery.isBlank()) {
             return Page.empty(pageable);
         }
-        Page<User> userPage = userRepository.searchByFirstNameOrLastNameStartsWith(nameQuery.trim(), pageable);
-        List<UserSearchResultDto> dtoList = userPage.getContent().stream()
-                .map(user -> {
-                    UserInfo info = user.getUserInfo();
-                    return UserSearchResultDto.builder()
-                            .id(user.getId())
-                            .firstName(info != null ? info.getFirstName() : null)
-                            .lastName(info != null ? info.getLastName() : null)
-                            .rating(info != null ? info.getRating() : null)
-                            .build();
-                })
-                .collect(Collectors.toList());
-        return new PageImpl<>(dtoList, pageable, userPage.getTotalElements());
+        return userSearchService.search(nameQuery.trim(), pageable);
     }
 
     @Transactional // Убедимся, что @Transactional на месте
@@ -239,7 +273,11 @@ public class UserService {
 
         confirmationTokenRepository.deleteAll(); // Удаляем ConfirmationToken
         refreshTokenRepository.deleteAll();
+        userStatsRepository.deleteAll();
+        userSearchService.removeAll();
         userRepository.deleteAll();
+        userStateCache.evictAll();
+        leaderboardService.markDirty();
     }
 
     public Page<UserInfo> getPaginatedUserInfo(Pageable pageable) {
@@ -0,0 +1,64 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.model.response.UserStateRow;
+import com.example.tennis.kz.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Короткоживущий локальный кэш роли и признака enabled по id пользователя.
+ * <p>
+ * При stateless-аутентификации токен несет роль в claims, но отключение учетной записи или смена роли
+ * должны вступать в силу без ожидания истечения токена. Фильтр сверяется с этим кэшем: не чаще раза в TTL
+ * на пользователя выполняется легкий запрос (id, role, enabled) без UserInfo. Изменения на этом узле
+ * сбрасывают запись сразу, на остальных — в пределах TTL.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserStateCache {
+
+    private final UserRepository userRepository;
+
+    @Value("${security.jwt.user-state-ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${security.jwt.user-state-cache-max-size:10000}")
+    private int maxSize;
+
+    private final Map<Long, CachedState> states = new ConcurrentHashMap<>();
+
+    // state == null — пользователь удален
+    private record CachedState(UserStateRow state, long expiresAtMillis) {
+    }
+
+    /** Возвращает актуальное (с точностью до TTL) состояние пользователя или null, если его больше нет. */
+    public UserStateRow get(Long userId) {
+        long now = System.currentTimeMillis();
+        CachedState cached = states.get(userId);
+        if (cached != null && cached.expiresAtMillis() > now) {
+            return cached.state();
+        }
+        UserStateRow state = userRepository.findUserState(userId).orElse(null);
+        if (states.size() >= maxSize) {
+            states.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+            if (states.size() >= maxSize) {
+                states.clear(); // Все записи свежие: проще начать заново, чем вести LRU
+            }
+        }
+        states.put(userId, new CachedState(state, now + ttlSeconds * 1000));
+        return state;
+    }
+
+    /** Сбрасывает запись после коммита текущей транзакции. */
+    public void evict(Long userId) {
+        AfterCommit.run(() -> states.remove(userId));
+    }
+
+    public void evictAll() {
+        AfterCommit.run(states::clear);
+    }
+}
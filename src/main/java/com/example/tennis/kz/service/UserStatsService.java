@@ -0,0 +1,268 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.exception.BadRequestException;
+import com.example.tennis.kz.model.*;
+import com.example.tennis.kz.model.response.UserStatsDTO;
+import com.example.tennis.kz.model.response.UserStatsRow;
+import com.example.tennis.kz.repository.MatchRepository;
+import com.example.tennis.kz.repository.UserRepository;
+import com.example.tennis.kz.repository.UserStatsJdbcRepository;
+import com.example.tennis.kz.repository.UserStatsJdbcRepository.StatsValues;
+import com.example.tennis.kz.repository.UserStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сводная статистика игроков (user_stats).
+ * <p>
+ * Результат матча прибавляется к строкам обоих участников и их партнеров в той же транзакции, что и сам результат,
+ * поэтому чтение статистики — это одна строка вместо агрегации по matches. Пересборка пересчитывает
+ * сводку из matches пачками пользователей в нескольких потоках: для первичного заполнения и проверки расхождений.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserStatsService {
+
+    private static final List<String> FINISHED_STATUSES = List.of(MatchStatus.COMPLETED.name(), MatchStatus.WALKOVER.name());
+
+    private final UserStatsRepository userStatsRepository;
+    private final UserStatsJdbcRepository userStatsJdbcRepository;
+    private final UserRepository userRepository;
+    private final MatchRepository matchRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean rebuildRunning = new AtomicBoolean(false);
+
+    @Value("${user-stats.rebuild.chunk-size:500}")
+    private int rebuildChunkSize;
+
+    @Value("${user-stats.rebuild.parallelism:4}")
+    private int rebuildParallelism;
+
+    @Value("${user-stats.rebuild.on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    /** Итог пересборки: сколько пользователей проверено и у скольких сводка расходилась с matches. */
+    public record RebuildResult(int usersProcessed, int usersDrifted, long durationMs) {
+    }
+
+    /** Учитывает завершенный матч (результат, тех. поражение или bye). Вызывается внутри транзакции записи результата. */
+    public void recordMatch(Match match) {
+        recordMatches(List.of(match));
+    }
+
+    public void recordMatches(Collection<Match> matches) {
+        Map<Long, Counters> deltas = new HashMap<>();
+        matches.forEach(match -> collect(match, 1, deltas));
+        apply(deltas);
+    }
+
+    /** Вычитает завершенные матчи, например перед удалением турнира вместе с его сеткой. */
+    public void revertMatches(Collection<Match> matches) {
+        Map<Long, Counters> deltas = new HashMap<>();
+        matches.forEach(match -> collect(match, -1, deltas));
+        apply(deltas);
+    }
+
+    public UserStatsDTO getStats(Long userId) {
+        UserStats stored = userStatsRepository.findById(userId).orElse(null);
+
+        Map<TournamentTier, Long> winsByTier = new EnumMap<>(TournamentTier.class);
+        Arrays.stream(TournamentTier.values()).forEach(tier -> winsByTier.put(tier, 0L));
+        UserStatsDTO stats = new UserStatsDTO();
+        stats.setWinsByTier(winsByTier);
+        if (stored == null) {
+            return stats; // Пользователь еще не сыграл ни одного матча
+        }
+        winsByTier.putAll(stored.getWinsByTier());
+        stats.setTotalMatchesPlayed(stored.getPlayed());
+        stats.setTotalWins(stored.getWins());
+        // Исходное определение: поражения = сыгранные - победы, где победы включают bye (см. UserStatsRow)
+        stats.setTotalLosses(Math.max(stored.getPlayed() - stored.getWins(), 0));
+        stats.setSinglesMatchesPlayed(stored.getSinglesPlayed());
+        stats.setSinglesWins(stored.getSinglesWins());
+        stats.setDoublesMatchesPlayed(stored.getDoublesPlayed());
+        stats.setDoublesWins(stored.getDoublesWins());
+        return stats;
+    }
+
+    /**
+     * Пересчитывает сводку всех пользователей из matches. Каждая пачка обрабатывается в своей транзакции;
+     * перезаписываются только расходящиеся строки.
+     */
+    public RebuildResult rebuildAll() {
+        if (!rebuildRunning.compareAndSet(false, true)) {
+            throw new BadRequestException("Пересборка статистики уже выполняется.");
+        }
+        long started = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, rebuildParallelism), runnable -> {
+            Thread thread = new Thread(runnable, "user-stats-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Long> userIds = userRepository.findAllIds();
+            int chunkSize = Math.max(1, rebuildChunkSize);
+            List<Future<Integer>> chunks = new ArrayList<>();
+            for (int from = 0; from < userIds.size(); from += chunkSize) {
+                List<Long> chunk = userIds.subList(from, Math.min(from + chunkSize, userIds.size()));
+                chunks.add(pool.submit(() -> transactionTemplate.execute(status -> rebuildChunk(chunk))));
+            }
+
+            int drifted = 0;
+            for (Future<Integer> chunk : chunks) {
+                try {
+                    drifted += chunk.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Пересборка статистики прервана.", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Ошибка пересборки статистики: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+            RebuildResult result = new RebuildResult(userIds.size(), drifted, System.currentTimeMillis() - started);
+            System.out.println("Статистика пользователей пересобрана: " + result);
+            return result;
+        } finally {
+            pool.shutdownNow();
+            rebuildRunning.set(false);
+        }
+    }
+
+    // Первичное заполнение: таблица сводки пуста, а сыгранные матчи уже есть
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!rebuildOnStartup || userStatsRepository.count() > 0 || matchRepository.count() == 0) {
+            return;
+        }
+        try {
+            rebuildAll();
+        } catch (RuntimeException e) {
+            System.err.println("Не удалось заполнить статистику пользователей при старте: " + e.getMessage());
+        }
+    }
+
+    private int rebuildChunk(List<Long> userIds) {
+        Map<Long, StatsValues> stored = userStatsJdbcRepository.lockAndLoad(userIds);
+
+        Map<Long, Counters> computed = new HashMap<>();
+        for (UserStatsRow row : userStatsJdbcRepository.aggregateForUsers(userIds, FINISHED_STATUSES)) {
+            Counters counters = computed.computeIfAbsent(row.userId(), id -> new Counters());
+            long played = row.played() != null ? row.played() : 0;
+            long wins = row.wins() != null ? row.wins() : 0;
+            long losses = row.losses() != null ? row.losses() : 0;
+            counters.add(row.tier(), row.category(), played, wins, losses);
+        }
+
+        List<StatsValues> drifted = new ArrayList<>();
+        for (Long userId : userIds) {
+            Counters counters = computed.get(userId);
+            StatsValues expected = counters != null ? counters.toValues(userId) : null;
+            StatsValues actual = stored.get(userId);
+            if (expected == null && actual == null) {
+                continue; // Матчей нет и строки нет — расхождения нет
+            }
+            if (expected == null) {
+                expected = new Counters().toValues(userId);
+            }
+            if (!expected.equals(actual == null ? null : normalized(actual))) {
+                drifted.add(expected);
+            }
+        }
+        if (!drifted.isEmpty()) {
+            userStatsJdbcRepository.replace(drifted);
+        }
+        return drifted.size();
+    }
+
+    private void collect(Match match, int sign, Map<Long, Counters> deltas) {
+        if (match == null || match.getWinner() == null || match.getTournament() == null) {
+            return;
+        }
+        if (match.getStatus() != MatchStatus.COMPLETED && match.getStatus() != MatchStatus.WALKOVER) {
+            return;
+        }
+        TournamentTier tier = match.getTournament().getTier();
+        Category category = match.getTournament().getCategory();
+        TournamentRegistration winner = match.getWinner();
+        TournamentRegistration loser = winner.equals(match.getParticipant1()) ? match.getParticipant2() : match.getParticipant1();
+
+        // В bye-матче соперника нет: победителю засчитывается только победа, без сыгранного матча
+        long played = loser != null ? sign : 0;
+        for (User user : playersOf(winner)) {
+            deltas.computeIfAbsent(user.getId(), id -> new Counters()).add(tier, category, played, sign, 0);
+        }
+        for (User user : playersOf(loser)) {
+            deltas.computeIfAbsent(user.getId(), id -> new Counters()).add(tier, category, sign, 0, sign);
+        }
+    }
+
+    private void apply(Map<Long, Counters> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<StatsValues> values = new ArrayList<>(deltas.size());
+        deltas.forEach((userId, counters) -> values.add(counters.toValues(userId)));
+        userStatsJdbcRepository.increment(values);
+    }
+
+    private static List<User> playersOf(TournamentRegistration registration) {
+        if (registration == null) {
+            return List.of();
+        }
+        List<User> players = new ArrayList<>(2);
+        if (registration.getUser() != null) players.add(registration.getUser());
+        if (registration.getPartner() != null) players.add(registration.getPartner());
+        return players;
+    }
+
+    // Нулевые победы по уровню не хранятся, поэтому сравнение идет без них
+    private static StatsValues normalized(StatsValues values) {
+        Map<TournamentTier, Long> winsByTier = new EnumMap<>(TournamentTier.class);
+        values.winsByTier().forEach((tier, wins) -> {
+            if (wins != 0) winsByTier.put(tier, wins);
+        });
+        return new StatsValues(values.userId(), values.played(), values.wins(), values.losses(),
+                values.singlesPlayed(), values.singlesWins(), values.doublesPlayed(), values.doublesWins(), winsByTier);
+    }
+
+    private static final class Counters {
+        private long played, wins, losses, singlesPlayed, singlesWins, doublesPlayed, doublesWins;
+        private final Map<TournamentTier, Long> winsByTier = new EnumMap<>(TournamentTier.class);
+
+        void add(TournamentTier tier, Category category, long played, long wins, long losses) {
+            this.played += played;
+            this.wins += wins;
+            this.losses += losses;
+            if (tier != null && wins != 0) {
+                winsByTier.merge(tier, wins, Long::sum);
+            }
+            if (category != null && category.isDoubles()) {
+                doublesPlayed += played;
+                doublesWins += wins;
+            } else if (category != null) {
+                singlesPlayed += played;
+                singlesWins += wins;
+            }
+        }
+
+        StatsValues toValues(long userId) {
+            Map<TournamentTier, Long> tiers = new EnumMap<>(TournamentTier.class);
+            winsByTier.forEach((tier, wins) -> {
+                if (wins != 0) tiers.put(tier, wins);
+            });
+            return new StatsValues(userId, played, wins, losses, singlesPlayed, singlesWins, doublesPlayed, doublesWins, tiers);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.tennis.kz;
+
+import com.example.tennis.kz.model.*;
+import com.example.tennis.kz.repository.TournamentRegistrationRepository;
+import com.example.tennis.kz.repository.TournamentRepository;
+import com.example.tennis.kz.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Основа интеграционных тестов на настоящем PostgreSQL: запросы приложения используют ON CONFLICT,
+ * LATERAL, pg_trgm и т.п., так что встраиваемая БД не подходит. Контейнер один на весь прогон,
+ * без Docker тесты пропускаются.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    protected UserRepository userRepository;
+    @Autowired
+    protected TournamentRepository tournamentRepository;
+    @Autowired
+    protected TournamentRegistrationRepository registrationRepository;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        POSTGRES.start(); // Повторный вызов для уже запущенного контейнера ничего не делает
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    protected User createUser(String firstName, String lastName, float rating) {
+        User user = User.builder()
+                .email(UUID.randomUUID() + "@test.kz")
+                .password("test")
+                .role(Role.USER)
+                .enabled(true)
+                .createdAt(LocalDateTime.now())
+                .userInfo(UserInfo.builder()
+                        .firstName(firstName)
+                        .lastName(lastName)
+                        .rating(rating)
+                        .points(0f)
+                        .build())
+                .build();
+        return userRepository.save(user);
+    }
+
+    /** Одиночный турнир уровня tier с players зарегистрированными игроками (рейтинги 1..players). */
+    protected Tournament createTournamentWithPlayers(TournamentTier tier, int players) {
+        Tournament tournament = tournamentRepository.save(Tournament.builder()
+                .description("Тестовый турнир")
+                .tier(tier)
+                .category(Category.SINGLES_ALL)
+                .startDate(LocalDate.now().plusDays(7))
+                .endDate(LocalDate.now().plusDays(9))
+                .build());
+        for (int i = 1; i <= players; i++) {
+            registrationRepository.save(TournamentRegistration.builder()
+                    .user(createUser("Игрок" + i, "Тестов" + i, i))
+                    .tournament(tournament)
+                    .status(RegistrationStatus.REGISTERED)
+                    .seedingRating((float) i)
+                    .build());
+        }
+        return tournament;
+    }
+}
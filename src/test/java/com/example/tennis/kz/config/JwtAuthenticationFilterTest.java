@@ -0,0 +1,57 @@
+package com.example.tennis.kz.config;
+
+import com.example.tennis.kz.model.response.ApiError;
+import com.example.tennis.kz.service.JwtService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.jsonwebtoken.ExpiredJwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String EXPIRED_MESSAGE =
+            "JWT expired at 2026-10-18T10:00:00Z. Current time: 2026-10-18T10:05:00Z, a difference of 300000 milliseconds.";
+
+    @Test
+    void expiredTokenBodyMatchesPreviousSerialization() throws Exception {
+        JwtService jwtService = mock(JwtService.class);
+        when(jwtService.parseClaims(anyString())).thenThrow(new ExpiredJwtException(null, null, EXPIRED_MESSAGE));
+        ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, null, null, objectMapper);
+        filter.initWriters();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users/me");
+        request.addHeader("Authorization", "Bearer expired.token.value");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+
+        assertEquals(401, response.getStatus());
+        assertEquals("application/json", response.getContentType());
+        byte[] body = response.getContentAsByteArray();
+        assertEquals(body.length, response.getContentLength());
+
+        // Прежний код: new org.codehaus.jackson.map.ObjectMapper().writeValueAsString(...) на каждый запрос
+        String previous = new org.codehaus.jackson.map.ObjectMapper()
+                .writeValueAsString(new ApiError("JWT is expired", EXPIRED_MESSAGE));
+        ObjectNode expected = (ObjectNode) objectMapper.readTree(previous);
+        // Старый маппер не знал fasterxml-аннотаций и писал "errors":null вопреки @JsonInclude(NON_NULL)
+        assertTrue(expected.get("errors").isNull());
+        expected.remove("errors");
+
+        JsonNode actual = objectMapper.readTree(body);
+        assertEquals(expected, actual);
+        assertEquals(objectMapper.writeValueAsString(new ApiError("JWT is expired", EXPIRED_MESSAGE)),
+                new String(body, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.tennis.kz.config;
+
+import com.example.tennis.kz.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@AutoConfigureMockMvc
+class SecurityConfigTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void healthIsOpenAndMetricsAreNot() throws Exception {
+        // Статус health зависит от внешних индикаторов (SMTP), проверяем только, что запрос не отклонен безопасностью
+        for (String path : new String[]{"/actuator/health", "/actuator/health/liveness", "/actuator/health/db"}) {
+            int status = mockMvc.perform(get(path)).andReturn().getResponse().getStatus();
+            assertNotEquals(401, status, path);
+            assertNotEquals(403, status, path);
+        }
+        String body = mockMvc.perform(get("/actuator/health")).andReturn().getResponse().getContentAsString();
+        assertFalse(body.contains("components"), body);
+
+        int metrics = mockMvc.perform(get("/actuator/metrics")).andReturn().getResponse().getStatus();
+        assertTrue(metrics == 401 || metrics == 403, "metrics " + metrics);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.tennis.kz.repository;
+
+import com.example.tennis.kz.PostgresIntegrationTest;
+import com.example.tennis.kz.model.Match;
+import com.example.tennis.kz.model.Tournament;
+import com.example.tennis.kz.model.TournamentTier;
+import com.example.tennis.kz.service.BracketService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Запись сетки одним JDBC batch против matchRepository.saveAll: одинаковый результат и время на сетке в 64 участника.
+ */
+@Tag("performance")
+class MatchJdbcRepositoryTest extends PostgresIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchJdbcRepositoryTest.class);
+    private static final int RUNS = 5;
+
+    @Autowired
+    private BracketService bracketService;
+    @Autowired
+    private MatchRepository matchRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void restoreJdbcBatch() {
+        setJdbcBatchInsert(true);
+    }
+
+    @Test
+    void jdbcBatchWritesSameBracketFasterThanSaveAll() {
+        // Прогрев обоих путей: JIT, кэш планов Hibernate и драйвера
+        generate(true);
+        generate(false);
+
+        List<Long> jdbcMillis = new ArrayList<>();
+        List<Long> saveAllMillis = new ArrayList<>();
+        List<String> jdbcShape = null;
+        List<String> saveAllShape = null;
+        for (int run = 0; run < RUNS; run++) {
+            Generated jdbc = generate(true);
+            Generated saveAll = generate(false);
+            jdbcMillis.add(jdbc.millis());
+            saveAllMillis.add(saveAll.millis());
+            jdbcShape = shape(jdbc.tournamentId());
+            saveAllShape = shape(saveAll.tournamentId());
+        }
+
+        // Оба пути пишут одно и то же дерево: раунды, номера, ссылки на следующий матч и слоты
+        assertEquals(63, jdbcShape.size());
+        assertEquals(saveAllShape, jdbcShape);
+
+        long jdbcMedian = median(jdbcMillis);
+        long saveAllMedian = median(saveAllMillis);
+        log.info("Сетка на 64: JDBC batch {} мс, saveAll {} мс (медиана из {})", jdbcMedian, saveAllMedian, RUNS);
+        assertTrue(jdbcMedian <= saveAllMedian,
+                "JDBC batch " + jdbcMillis + " мс медленнее saveAll " + saveAllMillis + " мс");
+    }
+
+    private Generated generate(boolean jdbcBatch) {
+        Tournament tournament = createTournamentWithPlayers(TournamentTier.MASTERS, 64);
+        setJdbcBatchInsert(jdbcBatch);
+        long started = System.nanoTime();
+        bracketService.generateBracket(tournament.getId());
+        return new Generated(tournament.getId(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private List<String> shape(Long tournamentId) {
+        return transactionTemplate.execute(status -> {
+            List<String> shape = new ArrayList<>();
+            for (Match match : matchRepository.findByTournamentIdOrderByRoundNumberAscMatchNumberInBracketAsc(tournamentId)) {
+                Match next = match.getNextMatch();
+                shape.add(match.getRoundNumber() + "/" + match.getMatchNumberInBracket() + "->"
+                        + (next != null ? next.getMatchNumberInBracket() + ":" + match.getNextMatchSlot() : "-")
+                        + " " + match.getStatus());
+            }
+            return shape;
+        });
+    }
+
+    private void setJdbcBatchInsert(boolean value) {
+        BracketService target = AopTestUtils.getTargetObject(bracketService);
+        ReflectionTestUtils.setField(target, "jdbcBatchInsert", value);
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private record Generated(Long tournamentId, long millis) {
+    }
+}
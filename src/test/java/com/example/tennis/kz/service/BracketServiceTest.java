@@ -0,0 +1,55 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.PostgresIntegrationTest;
+import com.example.tennis.kz.model.*;
+import com.example.tennis.kz.repository.MatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BracketServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private BracketService bracketService;
+    @Autowired
+    private MatchService matchService;
+    @Autowired
+    private MatchRepository matchRepository;
+
+    @Test
+    void emptyBranchesAreClosedWhenBracketIsBuilt() {
+        // 3 игрока в сетке на 16: половина первого круга - матчи двух пустых слотов
+        Tournament tournament = createTournamentWithPlayers(TournamentTier.FUTURES, 3);
+        bracketService.generateBracket(tournament.getId());
+
+        List<Match> matches = matches(tournament.getId());
+        assertEquals(15, matches.size());
+        // Ждать соперника может только финал; все остальное либо закрыто, либо готово к игре
+        List<Match> scheduled = matches.stream().filter(match -> match.getStatus() == MatchStatus.SCHEDULED).toList();
+        assertEquals(1, scheduled.size());
+        Match semifinal = scheduled.get(0);
+        assertEquals(3, semifinal.getRoundNumber());
+        for (Match match : matches) {
+            if (match.getRoundNumber() < 4 && match != semifinal) {
+                assertEquals(MatchStatus.WALKOVER, match.getStatus(), "match " + match.getMatchNumberInBracket());
+            }
+        }
+        Match finalMatch = matches.get(matches.size() - 1);
+        assertEquals(MatchStatus.PENDING_PARTICIPANTS, finalMatch.getStatus());
+        assertTrue(finalMatch.getParticipant1() != null || finalMatch.getParticipant2() != null);
+
+        // Победитель единственного полуфинала выходит в финал против первого сеяного
+        matchService.recordResult(semifinal.getId(), semifinal.getParticipant1().getId(), "6:4 6:4");
+        Match decided = matches(tournament.getId()).get(14);
+        assertEquals(MatchStatus.SCHEDULED, decided.getStatus());
+        assertNotNull(decided.getParticipant1());
+        assertNotNull(decided.getParticipant2());
+    }
+
+    private List<Match> matches(Long tournamentId) {
+        return matchRepository.findByTournamentIdOrderByRoundNumberAscMatchNumberInBracketAsc(tournamentId);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.PostgresIntegrationTest;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+/** Доставка outbox через настоящую SMTP-сессию на GreenMail: отправка, повтор после сбоя SMTP и метрики. */
+class EmailOutboxDispatcherTest extends PostgresIntegrationTest {
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+
+    @DynamicPropertySource
+    static void smtp(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.host", () -> "localhost");
+        registry.add("spring.mail.port", () -> ServerSetupTest.SMTP.getPort());
+        registry.add("spring.mail.properties.mail.smtp.auth", () -> "false");
+        registry.add("spring.mail.properties.mail.smtp.starttls.enable", () -> "false");
+        registry.add("spring.mail.properties.mail.smtp.starttls.required", () -> "false");
+        // Проходы запускает только тест
+        registry.add("mail.outbox.initial-delay-ms", () -> "3600000");
+    }
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @MockitoSpyBean
+    private JavaMailSender javaMailSender;
+
+    @BeforeEach
+    void clearOutbox() {
+        jdbcTemplate.update("DELETE FROM email_outbox");
+    }
+
+    @Test
+    void committedMailsAreDeliveredInOneSession() throws Exception {
+        double sentBefore = counter("mail.sent");
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 3; i++) {
+                dispatcher.enqueue("player" + i + "@example.com", "Подтверждение " + i, "Код " + i);
+            }
+        });
+        // Откаченная транзакция не оставляет писем
+        transactionTemplate.executeWithoutResult(status -> {
+            dispatcher.enqueue("rolled-back@example.com", "Откат", "Не должно уйти");
+            status.setRollbackOnly();
+        });
+
+        dispatcher.dispatch();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(3, received.length);
+        List<String> subjects = Arrays.stream(received).map(message -> {
+            try {
+                return message.getSubject();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).sorted().toList();
+        assertEquals(List.of("Подтверждение 0", "Подтверждение 1", "Подтверждение 2"), subjects);
+        assertEquals(3, count("SENT"));
+        assertEquals(3, counter("mail.sent") - sentBefore);
+        assertEquals(0, meterRegistry.get("mail.outbox.pending").gauge().value());
+    }
+
+    @Test
+    void mailIsRetriedWithBackoffAfterSmtpOutage() {
+        double retriedBefore = counter("mail.retried");
+        transactionTemplate.executeWithoutResult(status ->
+                dispatcher.enqueue("player@example.com", "Подтверждение", "Код"));
+
+        greenMail.stop();
+        LocalDateTime beforeFailure = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT status, attempts, next_attempt_at FROM email_outbox");
+        assertEquals("PENDING", row.get("status"));
+        assertEquals(1, ((Number) row.get("attempts")).intValue());
+        // Первая задержка — initial-backoff (1 минута)
+        LocalDateTime nextAttempt = ((Timestamp) row.get("next_attempt_at")).toLocalDateTime();
+        assertTrue(nextAttempt.isAfter(beforeFailure.plusSeconds(50)), "next attempt " + nextAttempt);
+        assertEquals(1, counter("mail.retried") - retriedBefore);
+        assertEquals(1, meterRegistry.get("mail.outbox.pending").gauge().value());
+
+        // До истечения задержки письмо не берется, после — уходит
+        greenMail.start();
+        dispatcher.dispatch();
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        jdbcTemplate.update("UPDATE email_outbox SET next_attempt_at = now()");
+        dispatcher.dispatch();
+        assertEquals(1, greenMail.getReceivedMessages().length);
+        assertEquals(1, count("SENT"));
+    }
+
+    @Test
+    void unmatchedFailureKeepsWholeBatchPending() {
+        transactionTemplate.executeWithoutResult(status -> {
+            dispatcher.enqueue("player0@example.com", "Подтверждение 0", "Код 0");
+            dispatcher.enqueue("player1@example.com", "Подтверждение 1", "Код 1");
+        });
+        // Сервер сообщил о сбое письма, которое не сопоставляется ни с одним письмом пачки
+        doThrow(new MailSendException(Map.of("raw message", new RuntimeException("550"))))
+                .when(javaMailSender).send(any(SimpleMailMessage[].class));
+
+        dispatcher.dispatch();
+
+        assertEquals(0, count("SENT"));
+        assertEquals(2, count("PENDING"));
+        assertEquals(List.of(1, 1), jdbcTemplate.queryForList("SELECT attempts FROM email_outbox ORDER BY id", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM email_outbox WHERE next_attempt_at <= now()", Integer.class));
+    }
+
+    private int count(String status) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email_outbox WHERE status = ?", Integer.class, status);
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.tennis.kz.service;
+
+import jakarta.mail.Message;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class EmailServiceTest {
+
+    private final JavaMailSender javaMailSender = mock(JavaMailSender.class);
+    private final EmailService emailService = new EmailService(javaMailSender);
+
+    @Test
+    void matchedFailureRetriesOnlyThatMail() throws Exception {
+        failWith(mimeMessage("player1@example.com", "Подтверждение 1"));
+        assertEquals(List.of(1), emailService.deliver(batch()));
+    }
+
+    @Test
+    void failureMatchedByRecipientRetriesThatRecipient() throws Exception {
+        failWith(mimeMessage("player2@example.com", "Тема изменена сервером"));
+        assertEquals(List.of(2), emailService.deliver(batch()));
+    }
+
+    @Test
+    void unmatchedFailureRetriesWholeBatch() throws Exception {
+        failWith(mimeMessage("stranger@example.com", "Подтверждение 1"));
+        assertEquals(List.of(0, 1, 2), emailService.deliver(batch()));
+    }
+
+    @Test
+    void unknownFailedMessageTypeRetriesWholeBatch() {
+        doThrow(new MailSendException(Map.of("raw message", new RuntimeException("550"))))
+                .when(javaMailSender).send(any(SimpleMailMessage[].class));
+        assertEquals(List.of(0, 1, 2), emailService.deliver(batch()));
+    }
+
+    private void failWith(MimeMessage failed) {
+        doThrow(new MailSendException(Map.of(failed, new RuntimeException("550 mailbox unavailable"))))
+                .when(javaMailSender).send(any(SimpleMailMessage[].class));
+    }
+
+    private static List<SimpleMailMessage> batch() {
+        return List.of(message(0), message(1), message(2));
+    }
+
+    private static SimpleMailMessage message(int i) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo("player" + i + "@example.com");
+        message.setSubject("Подтверждение " + i);
+        message.setText("Код " + i);
+        return message;
+    }
+
+    private static MimeMessage mimeMessage(String to, String subject) throws Exception {
+        MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+        message.setRecipients(Message.RecipientType.TO, to);
+        message.setSubject(subject);
+        return message;
+    }
+}
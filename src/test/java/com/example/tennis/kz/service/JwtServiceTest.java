@@ -0,0 +1,112 @@
+package com.example.tennis.kz.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.io.Encoders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtServiceTest.class);
+    private static final String SIGNING_KEY =
+            Encoders.BASE64.encode("test-signing-key-for-jwt-service-0123456789".getBytes(StandardCharsets.UTF_8));
+
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = newJwtService(100);
+    }
+
+    @Test
+    void cachedClaimsMatchParsedClaims() {
+        String token = jwtService.generateAccessToken(user("player@example.com"));
+        Claims parsed = parser(jwtService).parseClaimsJws(token).getBody();
+
+        Claims first = jwtService.parseClaims(token);
+        Claims cached = jwtService.parseClaims(token);
+        assertSame(first, cached);
+        assertEquals(parsed, cached);
+        assertEquals("player@example.com", jwtService.extractUserName(token));
+    }
+
+    @Test
+    void cacheStaysWithinLimit() {
+        for (int i = 0; i < 500; i++) {
+            jwtService.parseClaims(jwtService.generateAccessToken(user("player" + i + "@example.com")));
+        }
+        assertTrue(cache(jwtService).size() <= 100, "cache size " + cache(jwtService).size());
+    }
+
+    /** Пропускная способность проверки одного и того же access-токена: парсер на каждый запрос против кэша claims. */
+    @Test
+    @Tag("performance")
+    void cachedParseIsFasterThanParser() {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tokens.add(jwtService.generateAccessToken(user("player" + i + "@example.com")));
+        }
+        JwtParser parser = parser(jwtService);
+        int iterations = 200_000;
+
+        // Прогрев обоих путей
+        measure(iterations / 4, tokens, token -> parser.parseClaimsJws(token).getBody());
+        measure(iterations / 4, tokens, jwtService::parseClaims);
+
+        long parserNanos = measure(iterations, tokens, token -> parser.parseClaimsJws(token).getBody());
+        long cachedNanos = measure(iterations, tokens, jwtService::parseClaims);
+        log.info("parseClaims на {} вызовов: парсер {} мс ({} оп/с), кэш {} мс ({} оп/с)", iterations,
+                parserNanos / 1_000_000, opsPerSecond(iterations, parserNanos),
+                cachedNanos / 1_000_000, opsPerSecond(iterations, cachedNanos));
+        assertTrue(cachedNanos < parserNanos, "кэш " + cachedNanos + " нс не быстрее парсера " + parserNanos + " нс");
+    }
+
+    private static long measure(int iterations, List<String> tokens, java.util.function.Function<String, Claims> parse) {
+        long started = System.nanoTime();
+        int subjects = 0;
+        for (int i = 0; i < iterations; i++) {
+            subjects += parse.apply(tokens.get(i % tokens.size())).getSubject().length();
+        }
+        assertTrue(subjects > 0);
+        return System.nanoTime() - started;
+    }
+
+    private static long opsPerSecond(int iterations, long nanos) {
+        return iterations * 1_000_000_000L / Math.max(1, nanos);
+    }
+
+    private static JwtService newJwtService(int cacheMaxSize) {
+        JwtService service = new JwtService(null, null);
+        ReflectionTestUtils.setField(service, "jwtSigningKey", SIGNING_KEY);
+        ReflectionTestUtils.setField(service, "claimsCacheMaxSize", cacheMaxSize);
+        service.init();
+        return service;
+    }
+
+    private static JwtParser parser(JwtService service) {
+        return (JwtParser) ReflectionTestUtils.getField(service, "parser");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> cache(JwtService service) {
+        return (Map<String, ?>) ReflectionTestUtils.getField(service, "claimsCache");
+    }
+
+    private static UserDetails user(String email) {
+        return User.withUsername(email).password("x").roles("USER").build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.repository.NewsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class NewsImageDerivativesTest {
+
+    private static final String KEY = "news/photo.png";
+
+    @TempDir
+    Path directory;
+
+    private final R2StorageService storage = mock(R2StorageService.class);
+    private final NewsRepository newsRepository = mock(NewsRepository.class);
+    private NewsImageDerivatives derivatives;
+
+    @BeforeEach
+    void setUp() {
+        derivatives = new NewsImageDerivatives(storage, newsRepository);
+        ReflectionTestUtils.setField(derivatives, "widths", new int[]{320, 640, 1280});
+        ReflectionTestUtils.setField(derivatives, "workers", 1);
+        ReflectionTestUtils.setField(derivatives, "queueCapacity", 1);
+        ReflectionTestUtils.setField(derivatives, "maxPixels", 40_000_000L);
+        ReflectionTestUtils.setField(derivatives, "jpegQuality", 0.85f);
+        ReflectionTestUtils.invokeMethod(derivatives, "start");
+        when(newsRepository.updateImageVariants(anyLong(), anyString())).thenReturn(1);
+        when(storage.uploadBytesAsync(anyString(), any(byte[].class), anyString()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+    }
+
+    @Test
+    void allWidthsAreRecordedWhenUploadsSucceed() throws IOException {
+        generate(source(1600));
+        verify(newsRepository).updateImageVariants(7L, "320,640,1280");
+    }
+
+    @Test
+    void failedUploadIsLeftOutOfVariants() throws IOException {
+        when(storage.uploadBytesAsync(eq(NewsImageDerivatives.variantKey(KEY, 640)), any(byte[].class), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("R2 недоступен")));
+
+        Path source = source(1600);
+        generate(source);
+
+        // Копия 640 не записана: запрос ?size=500 получит 1280, а не несуществующий объект
+        verify(newsRepository).updateImageVariants(7L, "320,1280");
+        assertEquals(1280, NewsImageDerivatives.pickWidth("320,1280", 500));
+        assertFalse(Files.exists(source));
+    }
+
+    @Test
+    void nothingIsRecordedWhenAllUploadsFail() throws IOException {
+        when(storage.uploadBytesAsync(anyString(), any(byte[].class), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("R2 недоступен")));
+        generate(source(1600));
+        verify(newsRepository, never()).updateImageVariants(anyLong(), anyString());
+    }
+
+    private void generate(Path source) {
+        ReflectionTestUtils.invokeMethod(derivatives, "generate", 7L, KEY, "image/png", source);
+    }
+
+    private Path source(int width) throws IOException {
+        BufferedImage image = new BufferedImage(width, width / 2, BufferedImage.TYPE_INT_RGB);
+        Path file = directory.resolve("source.png");
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.PostgresIntegrationTest;
+import com.example.tennis.kz.model.News;
+import com.example.tennis.kz.model.NewsImageStatus;
+import com.example.tennis.kz.repository.NewsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MinIOContainer;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Асинхронная загрузка изображений новостей в S3-совместимое хранилище (MinIO): обычная и multipart-загрузка,
+ * статус READY после завершения и периодическое закрытие оборванных загрузок.
+ */
+class NewsImageUploadTest extends PostgresIntegrationTest {
+
+    static final MinIOContainer MINIO = new MinIOContainer("minio/minio:RELEASE.2024-10-13T13-34-11Z");
+    private static final String BUCKET = "news-test";
+    private static final int PART_SIZE = 5 * 1024 * 1024; // Минимальный размер части S3
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        MINIO.start();
+        try (S3Client client = s3Client(MINIO.getS3URL(), MINIO.getUserName(), MINIO.getPassword())) {
+            client.createBucket(bucket -> bucket.bucket(BUCKET));
+        }
+        registry.add("aws.s3.endpoint", MINIO::getS3URL);
+        registry.add("aws.s3.access-key-id", MINIO::getUserName);
+        registry.add("aws.s3.secret-access-key", MINIO::getPassword);
+        registry.add("aws.s3.bucket-name", () -> BUCKET);
+        registry.add("aws.s3.path-style-access", () -> "true");
+        registry.add("storage.upload.multipart-threshold-bytes", () -> PART_SIZE);
+        registry.add("storage.upload.part-size-bytes", () -> PART_SIZE);
+        registry.add("storage.upload.stale-check-initial-delay-ms", () -> "3600000");
+    }
+
+    @Autowired
+    private NewServices newServices;
+    @Autowired
+    private NewsRepository newsRepository;
+    @Autowired
+    private R2StorageService r2StorageService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void imageIsUploadedAfterNewsIsSaved() throws Exception {
+        byte[] png = png(400, 300, false);
+        News news = newServices.createNews(news("Открытие сезона"), new MockMultipartFile("file", "court.png", "image/png", png));
+        assertEquals(NewsImageStatus.PENDING, news.getImageStatus());
+
+        assertEquals(NewsImageStatus.READY, awaitUpload(news.getId()));
+        HeadObjectResponse head = r2StorageService.headFile(news.getImage());
+        assertEquals(png.length, head.contentLength());
+        assertEquals("image/png", head.contentType());
+    }
+
+    @Test
+    void largeImageIsUploadedInParts() throws Exception {
+        byte[] png = png(2048, 1024, true);
+        assertTrue(png.length > PART_SIZE, "size " + png.length);
+        News news = newServices.createNews(news("Финал"), new MockMultipartFile("file", "final.png", "image/png", png));
+
+        assertEquals(NewsImageStatus.READY, awaitUpload(news.getId()));
+        HeadObjectResponse head = r2StorageService.headFile(news.getImage());
+        assertEquals(png.length, head.contentLength());
+        // ETag составного объекта: "{md5 частей}-{число частей}"
+        assertTrue(head.eTag().matches("\"?[0-9a-f]+-\\d+\"?"), head.eTag());
+    }
+
+    @Test
+    void staleUploadsAreFailedPeriodically() {
+        News stale = newsRepository.save(pendingNews("Оборванная загрузка"));
+        News fresh = newsRepository.save(pendingNews("Идущая загрузка"));
+        jdbcTemplate.update("UPDATE news SET created_at = now() - interval '2 hours' WHERE coach_id = ?", stale.getId());
+
+        newServices.failStaleUploads();
+
+        assertEquals(NewsImageStatus.FAILED, newsRepository.findById(stale.getId()).orElseThrow().getImageStatus());
+        assertEquals(NewsImageStatus.PENDING, newsRepository.findById(fresh.getId()).orElseThrow().getImageStatus());
+    }
+
+    private NewsImageStatus awaitUpload(Long newsId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        NewsImageStatus status;
+        do {
+            Thread.sleep(100);
+            status = newsRepository.findById(newsId).orElseThrow().getImageStatus();
+        } while (status == NewsImageStatus.PENDING && System.currentTimeMillis() < deadline);
+        return status;
+    }
+
+    private News news(String title) {
+        return News.builder()
+                .title(title)
+                .description("Описание")
+                .author(createUser("Автор", "Новостей", 0))
+                .build();
+    }
+
+    private News pendingNews(String title) {
+        News news = news(title);
+        news.setImage("news/" + title.hashCode() + ".png");
+        news.setImageContentType("image/png");
+        news.setImageStatus(NewsImageStatus.PENDING);
+        return news;
+    }
+
+    // Шум плохо сжимается, так что noisy-картинка гарантированно больше одной части
+    private static byte[] png(int width, int height, boolean noisy) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, noisy ? random.nextInt() : (x * 255 / width) << 8 | (y * 255 / height));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static S3Client s3Client(String endpoint, String accessKey, String secretKey) {
+        return S3Client.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
+                .region(Region.of("apac"))
+                .endpointOverride(URI.create(endpoint))
+                .forcePathStyle(true)
+                .build();
+    }
+}
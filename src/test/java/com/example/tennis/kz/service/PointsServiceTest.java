@@ -0,0 +1,63 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.PostgresIntegrationTest;
+import com.example.tennis.kz.model.*;
+import com.example.tennis.kz.repository.MatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PointsServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private BracketService bracketService;
+    @Autowired
+    private MatchService matchService;
+    @Autowired
+    private PointsService pointsService;
+    @Autowired
+    private MatchRepository matchRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void legacyTournamentIsNotAwardedTwice() {
+        // Двое в сетке на 16: до финала все проходят по bye
+        Tournament tournament = createTournamentWithPlayers(TournamentTier.FUTURES, 2);
+        bracketService.generateBracket(tournament.getId());
+        List<Match> matches = matchRepository.findByTournamentIdOrderByRoundNumberAscMatchNumberInBracketAsc(tournament.getId());
+        Match finalMatch = matches.get(matches.size() - 1);
+        assertEquals(MatchStatus.SCHEDULED, finalMatch.getStatus());
+        matchService.recordResult(finalMatch.getId(), finalMatch.getParticipant1().getId(), "6:1 6:1");
+
+        List<Long> userIds = registrationRepository.findByTournamentIdAndStatus(tournament.getId(), RegistrationStatus.REGISTERED)
+                .stream().map(registration -> registration.getUser().getId()).toList();
+        List<Float> awarded = points(userIds);
+        assertTrue(awarded.stream().allMatch(points -> points > 0), "points " + awarded);
+
+        // Турнир "до журнала": очки уже в UserInfo.points, записей журнала нет
+        jdbcTemplate.update("DELETE FROM points_ledger WHERE tournament_id = ?", tournament.getId());
+
+        pointsService.backfillLegacyLedger();
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM points_ledger WHERE tournament_id = ?", Integer.class, tournament.getId()));
+        assertEquals(awarded, points(userIds));
+
+        // Повторный пересчет ничего не добавляет
+        pointsService.calculateAndAwardPointsForTournament(tournament.getId());
+        assertEquals(awarded, points(userIds));
+    }
+
+    private List<Float> points(List<Long> userIds) {
+        return transactionTemplate.execute(status -> userIds.stream()
+                .map(id -> userRepository.findById(id).orElseThrow().getUserInfo().getPoints())
+                .toList());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.tennis.kz.service;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class R2ImageProxyTest {
+
+    private static final int SIZE = 1000;
+
+    @TempDir
+    Path cacheDirectory;
+
+    private R2StorageService storage;
+    private R2ImageProxy proxy;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = mock(R2StorageService.class);
+        when(storage.downloadToFile(anyString(), any(Path.class))).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            Files.write(invocation.getArgument(1), body(key));
+            return GetObjectResponse.builder().contentLength((long) SIZE).build();
+        });
+        proxy = new R2ImageProxy(storage);
+        ReflectionTestUtils.setField(proxy, "cacheDirectory", cacheDirectory.toString());
+        // Помещается ровно один объект: каждый промах вытесняет предыдущий
+        ReflectionTestUtils.setField(proxy, "maxBytes", (long) SIZE);
+        proxy.init();
+    }
+
+    @Test
+    void fileIsNotEvictedWhileBeingServed() throws IOException {
+        Path served = cacheDirectory.resolve(TokenHashes.sha256("news/a.jpg"));
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return new ServletOutputStream() {
+                    private boolean evicting;
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        write(new byte[]{(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) throws IOException {
+                        if (!evicting) {
+                            evicting = true;
+                            // Посреди отдачи другой запрос скачивает новый объект и переполняет кэш
+                            proxy.serve("news/b.jpg", "image/jpeg", new MockHttpServletRequest("GET", "/"),
+                                    new MockHttpServletResponse());
+                            assertTrue(Files.exists(served), "отдаваемый файл удален");
+                        }
+                        written.write(bytes, offset, length);
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                    }
+                };
+            }
+        };
+
+        proxy.serve("news/a.jpg", "image/jpeg", new MockHttpServletRequest("GET", "/"), response);
+
+        assertArrayEquals(body("news/a.jpg"), written.toByteArray());
+        // После отдачи закрепление снято, и следующий промах вытесняет файл
+        proxy.serve("news/c.jpg", "image/jpeg", new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
+        assertFalse(Files.exists(served));
+    }
+
+    @Test
+    void evictDuringServeDeletesFileAfterwards() throws IOException {
+        Path served = cacheDirectory.resolve(TokenHashes.sha256("news/a.jpg"));
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                proxy.evict("news/a.jpg");
+                assertTrue(Files.exists(served));
+                return super.getOutputStream();
+            }
+        };
+
+        proxy.serve("news/a.jpg", "image/jpeg", new MockHttpServletRequest("GET", "/"), response);
+
+        assertArrayEquals(body("news/a.jpg"), response.getContentAsByteArray());
+        assertFalse(Files.exists(served));
+        // Следующий запрос скачивает объект заново
+        proxy.serve("news/a.jpg", "image/jpeg", new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
+        verify(storage, times(2)).downloadToFile(eq("news/a.jpg"), any(Path.class));
+    }
+
+    private static byte[] body(String key) {
+        byte[] body = new byte[SIZE];
+        Arrays.fill(body, (byte) key.hashCode());
+        return body;
+    }
+}
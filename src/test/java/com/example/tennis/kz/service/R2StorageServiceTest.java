@@ -0,0 +1,124 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.exception.BadRequestException;
+import com.example.tennis.kz.model.response.PresignedUrlResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Подпись ссылок считается локально, поэтому настоящий S3Presigner работает без сети и без R2.
+ */
+class R2StorageServiceTest {
+
+    private static final String BUCKET = "news-bucket";
+
+    private S3Presigner presigner;
+    private R2StorageService storageService;
+
+    @BeforeEach
+    void setUp() {
+        presigner = S3Presigner.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test-key", "test-secret")))
+                .region(Region.of("auto"))
+                .endpointOverride(URI.create("https://account.r2.cloudflarestorage.com"))
+                .build();
+        storageService = new R2StorageService(null, null, presigner);
+        ReflectionTestUtils.setField(storageService, "bucketName", BUCKET);
+    }
+
+    @AfterEach
+    void tearDown() {
+        presigner.close();
+    }
+
+    @Test
+    void uploadSignsContentTypeAndLength() {
+        Instant before = Instant.now();
+        PresignedUrlResponse upload = storageService.presignUpload("abc_photo.png", "image/png", 12345, Duration.ofMinutes(10));
+
+        assertEquals("PUT", upload.getMethod());
+        assertEquals("abc_photo.png", upload.getKey());
+        assertObjectUrl(upload.getUrl(), "abc_photo.png");
+
+        Map<String, String> query = queryOf(upload.getUrl());
+        List<String> signedHeaders = Arrays.asList(query.get("X-Amz-SignedHeaders").split(";"));
+        assertTrue(signedHeaders.contains("content-type"), "signed headers: " + signedHeaders);
+        assertTrue(signedHeaders.contains("content-length"), "signed headers: " + signedHeaders);
+        assertEquals("600", query.get("X-Amz-Expires"));
+
+        // Клиенту отдаются ровно подписанные значения, без Host
+        Map<String, String> headers = lowerCaseKeys(upload.getSignedHeaders());
+        assertEquals("image/png", headers.get("content-type"));
+        assertEquals("12345", headers.get("content-length"));
+        assertFalse(headers.containsKey("host"));
+
+        assertExpiresWithin(upload.getExpiresAt(), before, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void downloadUsesTtlBucketAndKey() {
+        Instant before = Instant.now();
+        PresignedUrlResponse download = storageService.presignDownload("abc_photo.png_w320", Duration.ofSeconds(90));
+
+        assertEquals("GET", download.getMethod());
+        assertEquals("abc_photo.png_w320", download.getKey());
+        assertObjectUrl(download.getUrl(), "abc_photo.png_w320");
+        assertEquals("90", queryOf(download.getUrl()).get("X-Amz-Expires"));
+        assertTrue(download.getSignedHeaders().isEmpty());
+        assertExpiresWithin(download.getExpiresAt(), before, Duration.ofSeconds(90));
+    }
+
+    @Test
+    void downloadRejectsBlankKey() {
+        assertThrows(BadRequestException.class, () -> storageService.presignDownload(" ", Duration.ofSeconds(90)));
+    }
+
+    @Test
+    void newKeyNeverLooksLikeDerivative() {
+        assertFalse(storageService.newKey("photo_w320").matches(".*_w\\d+$"));
+        assertTrue(storageService.newKey("my photo.png").endsWith("_my_photo.png"));
+    }
+
+    // Бакет может оказаться и в пути (path-style), и в поддомене (virtual-hosted)
+    private static void assertObjectUrl(String url, String key) {
+        URI uri = URI.create(url);
+        String bucketAndKey = uri.getHost().startsWith(BUCKET + ".") ? BUCKET + uri.getPath() : uri.getPath().substring(1);
+        assertEquals(BUCKET + "/" + key, bucketAndKey, url);
+    }
+
+    private static void assertExpiresWithin(Instant expiresAt, Instant before, Duration ttl) {
+        assertFalse(expiresAt.isBefore(before.plus(ttl).minusSeconds(1)), "expiresAt " + expiresAt);
+        assertFalse(expiresAt.isAfter(Instant.now().plus(ttl).plusSeconds(1)), "expiresAt " + expiresAt);
+    }
+
+    private static Map<String, String> queryOf(String url) {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : URI.create(url).getRawQuery().split("&")) {
+            int eq = pair.indexOf('=');
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static Map<String, String> lowerCaseKeys(Map<String, String> headers) {
+        Map<String, String> result = new HashMap<>();
+        headers.forEach((name, value) -> result.put(name.toLowerCase(Locale.ROOT), value));
+        return result;
+    }
+}
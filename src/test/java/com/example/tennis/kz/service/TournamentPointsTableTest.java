@@ -0,0 +1,59 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.model.Tournament;
+import com.example.tennis.kz.model.TournamentTier;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TournamentPointsTableTest {
+
+    @Test
+    void defaultTablesMatchOriginalBranchChain() {
+        TournamentPointsTable table = new TournamentPointsTable(new MockEnvironment());
+        for (TournamentTier tier : TournamentTier.values()) {
+            for (int totalRounds = 1; totalRounds <= 7; totalRounds++) {
+                for (int round = 1; round <= totalRounds + 1; round++) {
+                    assertEquals(originalPoints(tier, round, totalRounds), table.getPointsForRound(tier, round, totalRounds),
+                            tier + " round " + round + " of " + totalRounds);
+                }
+            }
+        }
+    }
+
+    @Test
+    void configuredScheduleReplacesOnlyItsTier() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("tournament.points.schedule.MASTERS", "1.0, 0.5");
+        TournamentPointsTable table = new TournamentPointsTable(environment);
+        int masters = Tournament.totalRounds(TournamentTier.MASTERS);
+
+        assertEquals(600, table.pointsForRound(TournamentTier.MASTERS, masters + 1));
+        assertEquals(300, table.pointsForRound(TournamentTier.MASTERS, masters));
+        assertEquals(0, table.pointsForRound(TournamentTier.MASTERS, masters - 1));
+        assertEquals(240, table.pointsForRound(TournamentTier.CHALLENGER, Tournament.totalRounds(TournamentTier.CHALLENGER)));
+    }
+
+    @Test
+    void invalidScheduleFailsStartup() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("tournament.points.schedule.FUTURES", "1.0,-0.5");
+        assertThrows(IllegalStateException.class, () -> new TournamentPointsTable(environment));
+    }
+
+    /** Исходный TournamentTier.getPointsForRound до таблиц. */
+    private static int originalPoints(TournamentTier tier, int roundReached, int totalRoundsInTournament) {
+        int totalPoints = tier.getTotalPoints();
+        if (totalRoundsInTournament <= 0) return 0;
+        if (roundReached > totalRoundsInTournament) return totalPoints;
+        if (roundReached == totalRoundsInTournament) return (int) Math.round(totalPoints * 0.60);
+        if (roundReached == totalRoundsInTournament - 1) return (int) Math.round(totalPoints * 0.36);
+        if (roundReached == totalRoundsInTournament - 2 && totalRoundsInTournament >= 3) return (int) Math.round(totalPoints * 0.19);
+        if (roundReached == totalRoundsInTournament - 3 && totalRoundsInTournament >= 4) return (int) Math.round(totalPoints * 0.10);
+        if (roundReached == totalRoundsInTournament - 4 && totalRoundsInTournament >= 5) return (int) Math.round(totalPoints * 0.055);
+        if (roundReached == totalRoundsInTournament - 5 && totalRoundsInTournament >= 6) return (int) Math.round(totalPoints * 0.01);
+        if (roundReached == 1 && totalRoundsInTournament > 1 && tier == TournamentTier.FUTURES) return (int) Math.round(totalPoints * 0.02);
+        return 0;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.PostgresIntegrationTest;
+import com.example.tennis.kz.model.Tournament;
+import com.example.tennis.kz.model.TournamentTier;
+import com.example.tennis.kz.model.response.MatchDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TournamentQueryServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private BracketService bracketService;
+    @Autowired
+    private TournamentQueryService tournamentQueryService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void bracketIsReadWithSingleStatement() {
+        // 12 игроков в сетке на 16: в первом круге есть и сыгранные пары, и bye
+        Tournament tournament = createTournamentWithPlayers(TournamentTier.FUTURES, 12);
+        bracketService.generateBracket(tournament.getId());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        List<MatchDto> bracket = tournamentQueryService.getTournamentBracket(tournament.getId());
+
+        assertEquals(15, bracket.size());
+        assertTrue(bracket.stream().anyMatch(match -> match.getParticipant1Name() != null));
+        // Одна проекция без догрузки регистраций, пользователей и турнира (N+1)
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}
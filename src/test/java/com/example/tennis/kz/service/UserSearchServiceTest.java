@@ -0,0 +1,131 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.PostgresIntegrationTest;
+import com.example.tennis.kz.model.User;
+import com.example.tennis.kz.model.response.UserSearchResultDto;
+import com.example.tennis.kz.repository.UserSearchJdbcRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Поиск на 500 тыс. строк user_search. Синтетические строки заполняются одним generate_series прямо в
+ * user_search (карточки для них не нужны), настоящие пользователи индексируются через сервис.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserSearchServiceTest extends PostgresIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchServiceTest.class);
+    private static final int SEEDED_ROWS = 500_000;
+    private static final long SEED_ID_BASE = 100_000_000L;
+    // Грубая граница против регрессии плана (полный перебор совпадений - секунды), а не целевой SLA
+    private static final long P95_LIMIT_MS = 1000;
+
+    private static final String SEED_SQL = "INSERT INTO user_search (user_id, search_text) " +
+            "SELECT ? + g, " +
+            "(ARRAY['aidar','nurlan','serik','dauren','ermek','timur','asel','aigerim','dana','madina'," +
+            "'arman','bolat','zhanna','gulnara','marat','ruslan','saule','dinara','yerlan','kairat'])[1 + g % 20] || ' ' || " +
+            "(ARRAY['nurlanov','abenov','seitkali','zhumabaev','omarov','kassymov','ibraev','tulegenov','akhmetov'," +
+            "'bekov','mukanov','sadykov','iskakov','zhakupov','baimukhanov'])[1 + (g / 20) % 15] || " +
+            "substr(md5(g::text), 1, 3) " +
+            "FROM generate_series(1, ?) AS g";
+
+    @Autowired
+    private UserSearchService userSearchService;
+    @Autowired
+    private UserSearchJdbcRepository userSearchJdbcRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User alikhan;
+
+    @BeforeAll
+    void seed() {
+        // Строки прерванного прогона на общей БД
+        jdbcTemplate.update("DELETE FROM user_search WHERE user_id > ?", SEED_ID_BASE);
+        jdbcTemplate.update(SEED_SQL, SEED_ID_BASE, SEEDED_ROWS);
+        jdbcTemplate.execute("ANALYZE user_search");
+        alikhan = createUser("Әлихан", "Сәрсенов", 5);
+        userSearchService.index(alikhan.getId(), "Әлихан", "Сәрсенов");
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM user_search WHERE user_id > ?", SEED_ID_BASE);
+        if (alikhan != null) {
+            userSearchService.remove(List.of(alikhan.getId()));
+            userRepository.deleteById(alikhan.getId());
+        }
+    }
+
+    @Test
+    void findsKazakhRussianAndLatinSpellings() {
+        for (String query : List.of("Әлихан", "Алихан", "Alikhan", "alikhan sars")) {
+            Page<UserSearchResultDto> page = userSearchService.search(query, PageRequest.of(0, 10));
+            assertFalse(page.getContent().isEmpty(), "query " + query);
+            assertEquals(alikhan.getId(), page.getContent().get(0).getId(), "query " + query);
+        }
+    }
+
+    @Test
+    void broadQueryTotalIsCapped() {
+        // "aidar" совпадает с каждой двадцатой строкой, то есть с 25 тыс. строк
+        Page<UserSearchResultDto> first = userSearchService.search("aidar", PageRequest.of(0, 20));
+        assertEquals(1000, first.getTotalElements());
+        assertEquals(50, first.getTotalPages());
+
+        // Последняя страница в пределах счета все равно показывает, что дальше есть результаты
+        Page<UserSearchResultDto> last = userSearchService.search("aidar", PageRequest.of(49, 20));
+        assertTrue(last.hasNext());
+    }
+
+    @Test
+    void pagesDoNotOverlap() {
+        // У синтетических строк нет карточек, поэтому страницы сравниваются по id из репозитория
+        List<Long> first = userSearchJdbcRepository.search("serik", 0.3, 20, 0, 1000).userIds();
+        List<Long> second = userSearchJdbcRepository.search("serik", 0.3, 20, 20, 1000).userIds();
+        assertEquals(20, first.size());
+        assertEquals(20, second.size());
+        assertTrue(Collections.disjoint(first, second), first + " / " + second);
+    }
+
+    @Test
+    @Tag("performance")
+    void typeaheadLatencyOnSeededTable() {
+        List<String> keystrokes = List.of("a", "ai", "aid", "aida", "aidar", "aidar n", "aidar nur",
+                "s", "se", "ser", "seri", "serik", "Серик", "Жанна", "mukan", "zhumab", "alikh");
+        // Прогрев: план, кэш страниц индекса
+        for (String query : keystrokes) {
+            userSearchService.search(query, PageRequest.of(0, 20));
+        }
+
+        List<Long> millis = new ArrayList<>();
+        for (int round = 0; round < 5; round++) {
+            for (String query : keystrokes) {
+                long started = System.nanoTime();
+                userSearchService.search(query, PageRequest.of(0, 20));
+                millis.add((System.nanoTime() - started) / 1_000_000);
+            }
+        }
+        Collections.sort(millis);
+        long p95 = millis.get((int) Math.ceil(millis.size() * 0.95) - 1);
+        log.info("Поиск по {} строкам: медиана {} мс, p95 {} мс, максимум {} мс", SEEDED_ROWS,
+                millis.get(millis.size() / 2), p95, millis.get(millis.size() - 1));
+        assertTrue(p95 < P95_LIMIT_MS, "p95 " + p95 + " мс");
+    }
+
+}
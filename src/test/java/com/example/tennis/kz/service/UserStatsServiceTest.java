@@ -0,0 +1,135 @@
+package com.example.tennis.kz.service;
+
+import com.example.tennis.kz.PostgresIntegrationTest;
+import com.example.tennis.kz.model.*;
+import com.example.tennis.kz.model.response.UserStatsDTO;
+import com.example.tennis.kz.repository.MatchRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserStatsServiceTest extends PostgresIntegrationTest {
+
+    // Исходные запросы статистики (до match_participants и user_stats): неявные соединения по слотам
+    // отсекают матчи с пустым слотом из сыгранных, а победы берутся по всем матчам, включая bye
+    private static final String ORIGINAL_PLAYED_QUERY = "SELECT m FROM Match m WHERE " +
+            "(m.participant1.user.id = :userId OR m.participant2.user.id = :userId " +
+            "OR (m.participant1.partner IS NOT NULL AND m.participant1.partner.id = :userId) " +
+            "OR (m.participant2.partner IS NOT NULL AND m.participant2.partner.id = :userId))";
+    private static final String ORIGINAL_WON_QUERY = "SELECT m FROM Match m WHERE m.winner IS NOT NULL AND (" +
+            "m.winner.user.id = :userId OR (m.winner.partner IS NOT NULL AND m.winner.partner.id = :userId))";
+
+    @Autowired
+    private BracketService bracketService;
+    @Autowired
+    private MatchService matchService;
+    @Autowired
+    private MatchRepository matchRepository;
+    @Autowired
+    private UserStatsService userStatsService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void statsMatchOriginalQueriesOnBracketWithByes() {
+        // 12 игроков в сетке на 16: четверо проходят первый круг по bye
+        Tournament tournament = createTournamentWithPlayers(TournamentTier.FUTURES, 12);
+        bracketService.generateBracket(tournament.getId());
+
+        List<Match> firstRound = matchesOfRound(tournament.getId(), 1);
+        Match bye = firstRound.stream().filter(match -> match.getStatus() == MatchStatus.WALKOVER).findFirst().orElseThrow();
+        TournamentRegistration byeWinner = bye.getWinner();
+        for (Match match : firstRound) {
+            if (match.getStatus() == MatchStatus.SCHEDULED) {
+                matchService.recordResult(match.getId(), match.getParticipant1().getId(), "6:4 6:4");
+            }
+        }
+        // Прошедший по bye проигрывает свой первый сыгранный матч
+        // Сущности из разных сессий: @Data-равенство регистраций сравнивает и ленивые связи, поэтому по id
+        Match secondRound = matchesOfRound(tournament.getId(), 2).stream()
+                .filter(match -> sameRegistration(byeWinner, match.getParticipant1()) || sameRegistration(byeWinner, match.getParticipant2()))
+                .findFirst().orElseThrow();
+        TournamentRegistration opponent = sameRegistration(byeWinner, secondRound.getParticipant1())
+                ? secondRound.getParticipant2() : secondRound.getParticipant1();
+        matchService.recordResult(secondRound.getId(), opponent.getId(), "6:3 6:3");
+
+        for (TournamentRegistration registration : registrationRepository
+                .findByTournamentIdAndStatus(tournament.getId(), RegistrationStatus.REGISTERED)) {
+            Long userId = registration.getUser().getId();
+            UserStatsDTO expected = originalStats(userId);
+            UserStatsDTO actual = userStatsService.getStats(userId);
+            assertEquals(expected.getTotalMatchesPlayed(), actual.getTotalMatchesPlayed(), "played, user " + userId);
+            assertEquals(expected.getTotalWins(), actual.getTotalWins(), "wins, user " + userId);
+            assertEquals(expected.getTotalLosses(), actual.getTotalLosses(), "losses, user " + userId);
+            assertEquals(expected.getWinsByTier(), actual.getWinsByTier(), "winsByTier, user " + userId);
+            assertEquals(expected.getSinglesMatchesPlayed(), actual.getSinglesMatchesPlayed(), "singlesPlayed, user " + userId);
+            assertEquals(expected.getSinglesWins(), actual.getSinglesWins(), "singlesWins, user " + userId);
+            assertEquals(expected.getDoublesMatchesPlayed(), actual.getDoublesMatchesPlayed(), "doublesPlayed, user " + userId);
+            assertEquals(expected.getDoublesWins(), actual.getDoublesWins(), "doublesWins, user " + userId);
+        }
+
+        // bye — победа без сыгранного матча, поэтому поражение "съедается"
+        UserStatsDTO byeStats = userStatsService.getStats(byeWinner.getUser().getId());
+        assertEquals(1, byeStats.getTotalMatchesPlayed());
+        assertEquals(1, byeStats.getTotalWins());
+        assertEquals(0, byeStats.getTotalLosses());
+
+        // Пересборка из matches дает ту же сводку, что и инкременты
+        assertEquals(0, userStatsService.rebuildAll().usersDrifted());
+    }
+
+    private static boolean sameRegistration(TournamentRegistration expected, TournamentRegistration actual) {
+        return actual != null && expected.getId().equals(actual.getId());
+    }
+
+    private List<Match> matchesOfRound(Long tournamentId, int round) {
+        return matchRepository.findByTournamentIdOrderByRoundNumberAscMatchNumberInBracketAsc(tournamentId).stream()
+                .filter(match -> match.getRoundNumber() == round)
+                .toList();
+    }
+
+    /** Статистика ровно так, как ее считал исходный UserActivityService.calculateUserStats. */
+    private UserStatsDTO originalStats(Long userId) {
+        return transactionTemplate.execute(status -> {
+            List<Match> allUserMatches = entityManager.createQuery(ORIGINAL_PLAYED_QUERY, Match.class)
+                    .setParameter("userId", userId).getResultList();
+            List<Match> wonMatches = entityManager.createQuery(ORIGINAL_WON_QUERY, Match.class)
+                    .setParameter("userId", userId).getResultList();
+
+            UserStatsDTO stats = new UserStatsDTO();
+            List<Match> finished = allUserMatches.stream()
+                    .filter(m -> m.getStatus() == MatchStatus.COMPLETED || m.getStatus() == MatchStatus.WALKOVER)
+                    .toList();
+            stats.setTotalMatchesPlayed(finished.size());
+            stats.setTotalWins(wonMatches.size());
+            stats.setTotalLosses(finished.size() > wonMatches.size() ? finished.size() - wonMatches.size() : 0);
+
+            Map<TournamentTier, Long> winsByTier = new EnumMap<>(TournamentTier.class);
+            Arrays.stream(TournamentTier.values()).forEach(tier -> winsByTier.put(tier, 0L));
+            for (Match won : wonMatches) {
+                winsByTier.merge(won.getTournament().getTier(), 1L, Long::sum);
+                if (won.getTournament().getCategory().isSingles()) {
+                    stats.setSinglesWins(stats.getSinglesWins() + 1);
+                } else if (won.getTournament().getCategory().isDoubles()) {
+                    stats.setDoublesWins(stats.getDoublesWins() + 1);
+                }
+            }
+            stats.setWinsByTier(winsByTier);
+            for (Match match : finished) {
+                if (match.getTournament().getCategory().isSingles()) {
+                    stats.setSinglesMatchesPlayed(stats.getSinglesMatchesPlayed() + 1);
+                } else if (match.getTournament().getCategory().isDoubles()) {
+                    stats.setDoublesMatchesPlayed(stats.getDoublesMatchesPlayed() + 1);
+                }
+            }
+            return stats;
+        });
+    }
+}